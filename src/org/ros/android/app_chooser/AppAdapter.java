@@ -33,8 +33,6 @@
 
 package org.ros.android.app_chooser;
 
-import android.graphics.BitmapFactory;
-import android.graphics.Bitmap;
 import android.widget.BaseAdapter;
 import android.widget.ImageView;
 import android.widget.TextView;
@@ -42,18 +40,25 @@ import android.content.Context;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.LayoutInflater;
+import android.util.Log;
+import android.widget.AdapterView;
 import app_manager.App;
-import java.util.ArrayList;
+import org.ros.android.app_chooser.core.AppListSnapshot;
+import org.ros.android.app_chooser.core.CellBinding;
+import java.util.List;
 
 public class AppAdapter extends BaseAdapter {
   private Context context;
-  private ArrayList<App> apps;
-  private ArrayList<App> runningApps;
+  private List<App> apps;
+  private AppListSnapshot snapshot;
+  private int updates;
+  private int fullRefreshes;
+  private int cellsRebound;
 
-  public AppAdapter(Context c, ArrayList<App> apps, ArrayList<App> runningApps) {
+  public AppAdapter(Context c, AppListSnapshot snapshot) {
     context = c;
-    this.apps = apps;
-    this.runningApps = runningApps;
+    this.snapshot = snapshot;
+    this.apps = snapshot.getAvailableApps();
   }
 
   @Override
@@ -65,8 +70,8 @@ public class AppAdapter extends BaseAdapter {
   }
 
   @Override
-  public Object getItem(int position) {
-    return null;
+  public App getItem(int position) {
+    return apps.get(position);
   }
 
   @Override
@@ -75,42 +80,119 @@ public class AppAdapter extends BaseAdapter {
   }
 
   boolean isAppRunning(App app) {
-    if (app.getName() == null) {
+    return snapshot.isRunning(app);
+  }
+
+  /**
+   * Replace the adapter contents with a new snapshot and refresh grid.
+   * When the same apps appear in the same order, only the visible cells
+   * whose binding differs from the one they show are rebound; otherwise the
+   * grid is refreshed as a whole.  Must be run in UI thread.
+   */
+  public void update(AppListSnapshot newSnapshot, AdapterView<?> grid) {
+    updates++;
+    List<App> newApps = newSnapshot.getAvailableApps();
+    boolean sameApps = sameNames(apps, newApps);
+    apps = newApps;
+    snapshot = newSnapshot;
+    if (!sameApps) {
+      fullRefreshes++;
+      notifyDataSetChanged();
+      Log.i("AppAdapter", "update " + updates + ": full refresh of " + getCount() + " cells");
+      return;
+    }
+
+    int rebound = 0;
+    int first = grid.getFirstVisiblePosition();
+    for (int i = 0; i < grid.getChildCount(); i++) {
+      int position = first + i;
+      View cell = grid.getChildAt(i);
+      ViewHolder holder = (ViewHolder) cell.getTag();
+      if (position < getCount() && !CellBinding.of(snapshot, position).equals(holder.bound)) {
+        bindView(cell, holder, position);
+        rebound++;
+      }
+    }
+    cellsRebound += rebound;
+    Log.i("AppAdapter", "update " + updates + ": rebound " + rebound + " of " + getCount() + " cells");
+  }
+
+  private static boolean sameNames(List<App> a, List<App> b) {
+    if (a == null || b == null || a.size() != b.size()) {
       return false;
     }
-    for (App c : this.runningApps) {
-      if (app.getName().equals(c.getName())) {
-        return true;
+    for (int i = 0; i < a.size(); i++) {
+      String name = a.get(i).getName();
+      if (name == null || !name.equals(b.get(i).getName())) {
+        return false;
       }
     }
-    return false;
+    return true;
+  }
+
+  public int getUpdates() {
+    return updates;
+  }
+
+  public int getFullRefreshes() {
+    return fullRefreshes;
+  }
+
+  public int getCellsRebound() {
+    return cellsRebound;
   }
 
   /**
-   * Create a new View for each item referenced by the Adapter.
+   * Views held by a grid cell, and the binding of the app the cell
+   * currently shows.  Stored as the tag of the cell's root view.
+   */
+  static class ViewHolder {
+    ImageView icon;
+    TextView name;
+    CellBinding bound;
+  }
+
+  /**
+   * Return a View for the item referenced by the Adapter, reusing
+   * convertView when the grid hands one back.
    */
   @Override
   public View getView(int position, View convertView, ViewGroup parent) {
-    LayoutInflater inflater = (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
-    // Using convert_view here seems to cause the wrong view to show
-    // up sometimes, so I'm always making new ones. (hersh: am I really sure of this??)
-    View view = inflater.inflate(R.layout.app_item, null);
+    View view = convertView;
+    ViewHolder holder;
+    if (view == null) {
+      LayoutInflater inflater = (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+      view = inflater.inflate(R.layout.app_item, parent, false);
+      holder = new ViewHolder();
+      holder.icon = (ImageView) view.findViewById(R.id.icon);
+      holder.name = (TextView) view.findViewById(R.id.name);
+      view.setTag(holder);
+    } else {
+      holder = (ViewHolder) view.getTag();
+    }
+    bindView(view, holder, position);
+    return view;
+  }
+
+  /**
+   * Every property of the cell is set here, in both directions, so nothing
+   * from the app previously shown in a recycled cell can leak through.  The
+   * icon is only reloaded when the cell does not already show it.
+   */
+  private void bindView(View view, ViewHolder holder, int position) {
     App app = apps.get(position);
-    if( app.getIcon().getData().array().length > 0 && app.getIcon().getFormat() != null &&
-        (app.getIcon().getFormat().equals("jpeg") || app.getIcon().getFormat().equals("png")) ) {
-      Bitmap iconBitmap = BitmapFactory.decodeByteArray( app.getIcon().getData().array(), 0, app.getIcon().getData().array().length );
-      if( iconBitmap != null ) {
-        ImageView iv = (ImageView) view.findViewById(R.id.icon);
-        iv.setImageBitmap(iconBitmap);
-      }
+    CellBinding binding = CellBinding.of(snapshot, position);
+    if (!binding.sameIcon(holder.bound)) {
+      // IconLoader tags the ImageView with the icon it expects, so a decode
+      // finishing for the previous app is dropped instead of shown here.
+      IconLoader.getInstance().load(holder.icon, app.getName(), app.getIcon(), snapshot.getIconHash(position));
     }
-    TextView tv = (TextView) view.findViewById(R.id.name);
-    tv.setText(app.getDisplayName());
-    if (isAppRunning(app)) {
+    holder.name.setText(binding.getLabel());
+    if (binding.isHighlighted()) {
       view.setBackgroundResource(R.drawable.highlight);
     } else {
       view.setBackgroundResource(0);
     }
-    return view;
+    holder.bound = binding;
   }
 }
@@ -0,0 +1,174 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import app_manager.App;
+import app_manager.ClientApp;
+import app_manager.KeyValue;
+import org.ros.message.MessageFactory;
+import org.ros.android.app_chooser.core.AppListSnapshot;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Persistent per-robot copy of the last app list received from the app
+ * manager, icons included, so the chooser can show the grid at once on
+ * start and revalidate it in the background.
+ */
+public class AppCatalogCache {
+  private static final int FORMAT_VERSION = 1;
+  private static final String SUFFIX = ".apps";
+
+  private final File dir;
+  private final MessageFactory messageFactory;
+
+  /** A cached app list and the time it was received from the robot. */
+  public static class Entry {
+    public final AppListSnapshot snapshot;
+    public final long timeMillis;
+
+    Entry(AppListSnapshot snapshot, long timeMillis) {
+      this.snapshot = snapshot;
+      this.timeMillis = timeMillis;
+    }
+  }
+
+  public AppCatalogCache(File dir, MessageFactory messageFactory) {
+    this.dir = dir;
+    this.messageFactory = messageFactory;
+  }
+
+  /** Returns the cached app list for the robot, or null if there is none. */
+  public Entry load(String masterUri) {
+    File file = CatalogFiles.fileFor(dir, masterUri, SUFFIX);
+    if (!file.exists()) {
+      return null;
+    }
+    DataInputStream in = null;
+    try {
+      in = CatalogFiles.openForRead(file);
+      if (in.readInt() != FORMAT_VERSION) {
+        return null;
+      }
+      long time = in.readLong();
+      List<App> available = readApps(in);
+      List<App> running = readApps(in);
+      return new Entry(new AppListSnapshot(available, running), time);
+    } catch (IOException e) {
+      CatalogFiles.discard(file, e);
+      return null;
+    } catch (RuntimeException e) {
+      CatalogFiles.discard(file, e);
+      return null;
+    } finally {
+      CatalogFiles.closeQuietly(in);
+    }
+  }
+
+  /** Queue the app list to be written on the cache writer thread. */
+  public void save(String masterUri, final AppListSnapshot snapshot, final long timeMillis) {
+    CatalogFiles.write(CatalogFiles.fileFor(dir, masterUri, SUFFIX), new CatalogFiles.Contents() {
+        @Override
+        public void writeTo(DataOutputStream out) throws IOException {
+          out.writeInt(FORMAT_VERSION);
+          out.writeLong(timeMillis);
+          writeApps(out, snapshot.getAvailableApps());
+          writeApps(out, snapshot.getRunningApps());
+        }});
+  }
+
+  private void writeApps(DataOutputStream out, List<App> apps) throws IOException {
+    out.writeInt(apps.size());
+    for (App app : apps) {
+      CatalogFiles.writeString(out, app.getName());
+      CatalogFiles.writeString(out, app.getDisplayName());
+      CatalogFiles.writeIcon(out, app.getIcon());
+      List<ClientApp> clients = app.getClientApps();
+      out.writeInt(clients.size());
+      for (ClientApp client : clients) {
+        CatalogFiles.writeString(out, client.getClientType());
+        writeKeyValues(out, client.getManagerData());
+        writeKeyValues(out, client.getAppData());
+      }
+    }
+  }
+
+  private List<App> readApps(DataInputStream in) throws IOException {
+    int n = CatalogFiles.readLength(in);
+    ArrayList<App> apps = new ArrayList<App>(n);
+    for (int i = 0; i < n; i++) {
+      App app = messageFactory.newFromType(App._TYPE);
+      app.setName(CatalogFiles.readString(in));
+      app.setDisplayName(CatalogFiles.readString(in));
+      app.setIcon(CatalogFiles.readIcon(in, messageFactory));
+      int nClients = CatalogFiles.readLength(in);
+      ArrayList<ClientApp> clients = new ArrayList<ClientApp>(nClients);
+      for (int j = 0; j < nClients; j++) {
+        ClientApp client = messageFactory.newFromType(ClientApp._TYPE);
+        client.setClientType(CatalogFiles.readString(in));
+        client.setManagerData(readKeyValues(in));
+        client.setAppData(readKeyValues(in));
+        clients.add(client);
+      }
+      app.setClientApps(clients);
+      apps.add(app);
+    }
+    return apps;
+  }
+
+  private void writeKeyValues(DataOutputStream out, List<KeyValue> kvl) throws IOException {
+    out.writeInt(kvl.size());
+    for (KeyValue kv : kvl) {
+      CatalogFiles.writeString(out, kv.getKey());
+      CatalogFiles.writeString(out, kv.getValue());
+    }
+  }
+
+  private List<KeyValue> readKeyValues(DataInputStream in) throws IOException {
+    int n = CatalogFiles.readLength(in);
+    ArrayList<KeyValue> kvl = new ArrayList<KeyValue>(n);
+    for (int i = 0; i < n; i++) {
+      KeyValue kv = messageFactory.newFromType(KeyValue._TYPE);
+      kv.setKey(CatalogFiles.readString(in));
+      kv.setValue(CatalogFiles.readString(in));
+      kvl.add(kv);
+    }
+    return kvl;
+  }
+}
@@ -34,6 +34,8 @@
 package org.ros.android.app_chooser;
 
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.Menu;
 import android.view.MenuInflater;
@@ -72,6 +74,15 @@ import app_manager.StatusCodes;
 import app_manager.StopAppResponse;
 import ros.android.activity.AppManager;
 
+import org.json.JSONException;
+import org.ros.android.app_chooser.core.AppListSnapshot;
+import org.ros.android.app_chooser.core.RunningAppIndex;
+import org.ros.android.app_chooser.core.AppCatalog;
+import org.ros.android.app_chooser.core.AppManagerClient;
+import org.ros.android.app_chooser.core.BatchStop;
+import org.ros.android.app_chooser.core.InFlightRequests;
+
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -81,9 +92,18 @@ import java.util.List;
  */
 public class AppChooser extends RosAppActivity implements AppManager.TerminationCallback {
 
-  private ArrayList<app_manager.App> availableAppsCache;
-  private ArrayList<App> runningAppsCache;
-  private long availableAppsCacheTime;
+  private final AppCatalog catalog;
+  private volatile AppManagerClient client;
+  private volatile ClientAppIndex clientAppIndex;
+  private AppCatalogCache catalogCache;
+  private String catalogKey;
+  private AppListSnapshot cachedSnapshot;
+  private AppAdapter appAdapter;
+  private UpdateCoalescer<AppListSnapshot> appListUpdates;
+  private App switchTarget;
+  private long switchTapMillis;
+  private LaunchTrace switchTrace;
+  private AppSwitch appSwitch;
   private TextView robotNameView;
   private Button deactivate;
   private Button stopApps;
@@ -97,12 +117,20 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
   private int mode = REG;
 
   public AppChooser() {
-    availableAppsCache = new ArrayList<App>();
-    runningAppsCache = new ArrayList<App>();
-    availableAppsCacheTime = 0;
+    catalog = new AppCatalog();
+    clientAppIndex = new ClientAppIndex(catalog.getSnapshot().getAvailableApps());
     alerts = new ArrayList<AlertDialog>();
   }
 
+  // Lets the operator stop waiting on a slow robot.  The request itself
+  // still completes or times out and reports to the status line.
+  private final DialogInterface.OnCancelListener progressCancelled = new DialogInterface.OnCancelListener() {
+      @Override
+      public void onCancel(DialogInterface dialog) {
+        progress = null;
+        safeSetStatus("Stopped waiting for the robot");
+      }};
+
   private void stopProgress() {
     final ProgressDialog temp = progress;
     progress = null;
@@ -125,6 +153,7 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
     setDashboardResource(R.id.top_bar);
     setMainWindowResource(R.layout.main);
     super.onCreate(savedInstanceState);
+    ServiceCalls.configure(getResources());
     robotNameView = (TextView) findViewById(R.id.robot_name_view);
 
     deactivate = (Button) findViewById(R.id.deactivate_robot);
@@ -133,15 +162,59 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
     stopApps.setVisibility(stopApps.GONE);
     exchangeButton = (Button) findViewById(R.id.exchange_button);
     exchangeButton.setVisibility(deactivate.GONE);
+
+    appListUpdates = new UpdateCoalescer<AppListSnapshot>("AppList", new Handler(), UpdateCoalescer.DEFAULT_INTERVAL_MILLIS,
+        new UpdateCoalescer.Renderer<AppListSnapshot>() {
+          @Override
+          public void render(AppListSnapshot snapshot) {
+            updateAppList(snapshot);
+            // Saving here rather than per message writes a burst of updates once.
+            if (snapshot != cachedSnapshot) {
+              saveCatalog(snapshot);
+            }
+          }});
+
+    GridView gridview = (GridView) findViewById(R.id.gridview);
+    appAdapter = new AppAdapter(this, catalog.getSnapshot());
+    gridview.setAdapter(appAdapter);
+    registerForContextMenu(gridview);
+    gridview.setOnItemClickListener(new OnItemClickListener() {
+      @Override
+      public void onItemClick(AdapterView<?> parent, View v, int position, long id) {
+
+        if (catalog.hasRunningApps()) {
+          Log.i("AppChooser", "RunningAppsCache greater than zero.");
+        }
+        if ( mode == REG) {
+          Log.i("AppChooser", "MODE is REG" );
+        }
+
+        App app = appAdapter.getItem(position);
+        LaunchTrace trace = LaunchTrace.begin(app.getName(), robotName());
+        trace.mark("click");
+        if (catalog.mustStopOthersFirst(app, mode == REG)) {
+          switchTarget = app;
+          switchTapMillis = SystemClock.elapsedRealtime();
+          switchTrace = trace;
+          removeDialog(CLOSE_EXISTING);
+          showDialog(CLOSE_EXISTING);
+          return;
+        }
+        AppLauncher.launch(AppChooser.this, app, clientAppIndex, trace);
+        
+      }
+    });
   }
 
   @Override
   protected void onResume() {
     super.onResume();
     setStatus("");
-    availableAppsCache = new ArrayList<App>();
-    runningAppsCache = new ArrayList<App>();
-    updateAppList(availableAppsCache, runningAppsCache);
+    // A client may have been installed from the market while we were away.
+    DeviceCapabilities.get(this).clearInstalled();
+    ClientAppIndex.clearResolved();
+    // Keep showing the last known list while it is refreshed.
+    updateAppList(catalog.getSnapshot());
     if (appManager != null) {
       forceUpdate();
     }
@@ -152,17 +225,21 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
    * @param app
    */
   public void onAppClicked(final App app, final boolean isClientApp) {
+    onAppClicked(app, isClientApp, null);
+  }
+
+  /**
+   * Start/stop applications, adding the steps to trace.
+   *
+   * @param trace trace of this launch, or null if it is not traced
+   */
+  public void onAppClicked(final App app, final boolean isClientApp, LaunchTrace trace) {
     if( appManager == null ) {
       safeSetStatus("Failed: appManager is not ready.");
       return;
     }
-    boolean running = false;
-    for (App i : runningAppsCache) {
-      if (i.getName().equals(app.getName())) {
-        running = true;
-      }
-    }
-   
+    LaunchTrace.Span clickedSpan = LaunchTrace.beginSpan(trace, "onAppClicked");
+    boolean running = catalog.isRunning(app);
 
     if (!running) {
       stopProgress();
@@ -171,12 +248,14 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
           public void run() {
             stopProgress();
             progress = ProgressDialog.show(AppChooser.this,
-                          "Starting Application", "Starting " + app.getDisplayName() + "...", true, false);
+                          "Starting Application", "Starting " + app.getDisplayName() + "...", true, true, progressCancelled);
             progress.setProgressStyle(ProgressDialog.STYLE_SPINNER);
           }});
-      appManager.startApp(app.getName(), new ServiceResponseListener<StartAppResponse>() {
+      final LaunchTrace.Span startSpan = LaunchTrace.beginSpan(trace, "startApp");
+      InFlightRequests.getInstance().startApp(client, app.getName(), new ServiceResponseListener<StartAppResponse>() {
           @Override
           public void onSuccess(StartAppResponse message) {
+            LaunchTrace.endSpan(startSpan, message.getStarted() ? null : "error " + message.getErrorCode());
             if (message.getStarted()) {
               safeSetStatus("Started");
             } else if (message.getErrorCode() == StatusCodes.MULTIAPP_NOT_SUPPORTED) {
@@ -194,6 +273,7 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
           
           @Override
           public void onFailure(RemoteException e) {
+            LaunchTrace.endSpan(startSpan, "failed: " + e.getMessage());
             safeSetStatus("Failed: " + e.getMessage());
             stopProgress();
           }});
@@ -225,39 +305,108 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
             stopProgress();
           }});
           }*/
+    LaunchTrace.endSpan(clickedSpan, null);
+  }
+
+  /**
+   * Stop the running applications and start app as soon as they are gone,
+   * behind one progress dialog that can be cancelled.
+   *
+   * @param tapMillis SystemClock.elapsedRealtime() of the tap on app
+   * @param trace trace of this launch, or null if it is not traced
+   */
+  public void switchToApp(final App app, long tapMillis, final LaunchTrace trace) {
+    if (appManager == null) {
+      safeSetStatus("Failed: appManager is not ready.");
+      return;
+    }
+    if (appSwitch != null) {
+      appSwitch.cancel();
+    }
+    stopProgress();
+    progress = ProgressDialog.show(AppChooser.this, "Switching Application",
+        "Stopping the current application...", true, true, new DialogInterface.OnCancelListener() {
+          @Override
+          public void onCancel(DialogInterface dialog) {
+            progress = null;
+            cancelSwitch();
+            safeSetStatus("Switch cancelled");
+          }});
+    progress.setProgressStyle(ProgressDialog.STYLE_SPINNER);
+    // The app lists that arrive during the switch replace clientAppIndex;
+    // launch from the index the client was prewarmed into.
+    final ClientAppIndex switchIndex = clientAppIndex;
+    appSwitch = new AppSwitch(client, InFlightRequests.getInstance(), new Handler(), app, tapMillis, trace,
+                              new AppSwitch.Callback() {
+      @Override
+      public void onStarting(App app) {
+        if (progress != null) {
+          progress.setMessage("Starting " + app.getDisplayName() + "...");
+        }
+      }
+      @Override
+      public void onStarted(App app, StartAppResponse message, long latencyMillis) {
+        appSwitch = null;
+        stopProgress();
+        if (message.getStarted()) {
+          safeSetStatus("Started in " + latencyMillis + " ms");
+          AppLauncher.launchClient(AppChooser.this, app, switchIndex, trace);
+        } else if (message.getErrorCode() == StatusCodes.MULTIAPP_NOT_SUPPORTED) {
+          showDialog(MULTI_APP_DISABLED);
+        } else {
+          safeSetStatus(message.getMessage());
+        }
+      }
+      @Override
+      public void onFailed(App app, String message) {
+        appSwitch = null;
+        stopProgress();
+        safeSetStatus(message);
+      }
+    });
+    appSwitch.start(catalog.getSnapshot().getRunningApps(), getResources().getInteger(R.integer.app_switch_timeout_seconds) * 1000L);
+    if (getResources().getBoolean(R.bool.prewarm_client_apps)) {
+      // Overlap the client's cold start with stopping and starting on the robot.
+      ClientPrewarmer.prewarm(this, app, switchIndex, getResources().getBoolean(R.bool.prewarm_signal_client));
+    }
+  }
+
+  private void cancelSwitch() {
+    if (appSwitch != null) {
+      appSwitch.cancel();
+      appSwitch = null;
+    }
+  }
+
+  /**
+   * Let a pending switch start its app as soon as an app list shows the
+   * running apps are gone.
+   */
+  private void confirmSwitch(final RunningAppIndex running) {
+    runOnUiThread(new Runnable() {
+        @Override
+        public void run() {
+          if (appSwitch != null) {
+            appSwitch.onRunningApps(running);
+          }
+        }});
   }
 
   private void forceUpdate() {
-    appManager.listApps(new ServiceResponseListener<ListAppsResponse>() {
+    final AppManagerClient requestClient = client;
+    InFlightRequests.getInstance().listApps(requestClient, new ServiceResponseListener<ListAppsResponse>() {
         @Override
         public void onSuccess(ListAppsResponse message) {
-          availableAppsCache = (ArrayList<App>) message.getAvailableApps();
-          runningAppsCache = (ArrayList<App>) message.getRunningApps();
-          ArrayList<String> runningAppsNames = new ArrayList<String>();
-          int i = 0;
-          for (i = 0; i<availableAppsCache.size(); i++) {
-            App item = availableAppsCache.get(i);
-            ArrayList<String> clients = new ArrayList<String>();
-            for (int j = 0; j< item.getClientApps().size(); j++) {
-              clients.add(item.getClientApps().get(j).getClientType());
-            }
-            if (!clients.contains("android") && item.getClientApps().size() != 0) {
-              availableAppsCache.remove(i);
-              i--;
-            }
-            
-            if (item.getClientApps().size() == 0) {
-              Log.i("AppChooser", "Item name: " + item.getName() );
-              runningAppsNames.add(item.getName());
-            }
+          if (requestClient != client) {
+            Log.i("RosAndroid", "ignoring ListApps.Response from a previous robot");
+            return;
           }
-          Log.i("RosAndroid", "ListApps.Response: " + availableAppsCache.size() + " apps");
-          availableAppsCacheTime = System.currentTimeMillis();
-          runOnUiThread(new Runnable() {
-              @Override
-              public void run() {
-                updateAppList(availableAppsCache, runningAppsCache);
-              }});
+          AppListSnapshot snapshot = catalog.update(message.getAvailableApps(), message.getRunningApps(),
+                                                    System.currentTimeMillis());
+          clientAppIndex = new ClientAppIndex(snapshot.getAvailableApps());
+          Log.i("RosAndroid", "ListApps.Response: " + snapshot.getAvailableApps().size() + " apps");
+          appListUpdates.submit(snapshot);
+          confirmSwitch(snapshot.getRunningIndex());
         }
         @Override
         public void onFailure(final RemoteException e) {
@@ -279,59 +428,33 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
   /**
    * Must be run in UI thread.
    * 
-   * @param apps
+   * @param snapshot
    */
-  protected void updateAppList(final ArrayList<App> apps, final ArrayList<App> runningApps) {
+  protected void updateAppList(AppListSnapshot snapshot) {
     Log.i("RosAndroid", "updating gridview");
     GridView gridview = (GridView) findViewById(R.id.gridview);
-    gridview.setAdapter(new AppAdapter(AppChooser.this, apps, runningApps));
-    registerForContextMenu(gridview);
-    gridview.setOnItemClickListener(new OnItemClickListener() {
-      @Override
-      public void onItemClick(AdapterView<?> parent, View v, int position, long id) {
-
-        if (runningAppsCache.size() > 0) {
-          Log.i("AppChooser", "RunningAppsCache greater than zero.");
-        }
-        if ( mode == REG) {
-          Log.i("AppChooser", "MODE is REG" );
-        }
-
-        boolean running = false;
-        App app = availableAppsCache.get(position);
-        for (App i : runningAppsCache) {
-          if (i.getName().equals(app.getName())) {
-            running = true;
-          }
-        }
-
-
-        if (!running && (runningAppsCache.size() > 0 && mode == REG)) {
-          showDialog(CLOSE_EXISTING);
-          return;
-        }
-        AppLauncher.launch(AppChooser.this, apps.get(position));
-        
-      }
-    });
-    if (runningApps != null) {
-      if (runningApps.toArray().length != 0) {
+    appAdapter.update(snapshot, gridview);
+    if (snapshot.getRunningApps() != null) {
+      if (!snapshot.getRunningIndex().isEmpty()) {
         //stopApps.setVisibility(stopApps.VISIBLE);
       } else {
         stopApps.setVisibility(stopApps.GONE);
       }
     }
     Log.i("RosAndroid", "gridview updated");
+    IconCache.getInstance().logStats();
+    Log.i("InFlightRequests", InFlightRequests.getInstance().getStats());
   }
 
   @Override
   protected void onNodeCreate(ConnectedNode node) {
-    availableAppsCache = new ArrayList<App>();
-    runningAppsCache = new ArrayList<App>();
+    catalog.clear();
+    final AppListSnapshot snapshot = catalog.getSnapshot();
+    clientAppIndex = new ClientAppIndex(snapshot.getAvailableApps());
     runOnUiThread(new Runnable() {
         @Override
         public void run() {
-          updateAppList(availableAppsCache, runningAppsCache);
+          updateAppList(snapshot);
         }});
     Log.i("RosAndroid", "AppChooser.onNodeCreate");
     try {
@@ -361,48 +484,23 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
       return;
     } else {
       appManager.addTerminationCallback(null, this);
+      client = new RosAppManagerClient(appManager);
     }
     
-    //Note, I've temporarily disabled caching.
-    if (System.currentTimeMillis() - availableAppsCacheTime >= 0 * 1000) {
-      Log.i("RosAndroid", "sending list apps request");
-      forceUpdate();
-    }
+    loadCatalog(node);
+    Log.i("RosAndroid", "sending list apps request");
+    forceUpdate();
 
     try {
       appManager.addAppListCallback(new MessageListener<AppList>() {
         @Override
         public void onNewMessage(AppList message) {
-          availableAppsCache = (ArrayList<App>) message.getAvailableApps();
-          runningAppsCache = (ArrayList<App>) message.getRunningApps();
-          ArrayList<String> runningAppsNames = new ArrayList<String>();
-          int i = 0;
-          for (i = 0; i<availableAppsCache.size(); i++) {
-            App item = availableAppsCache.get(i);
-            ArrayList<String> clients = new ArrayList<String>();
-            for (int j = 0; j< item.getClientApps().size(); j++) {
- 
-              clients.add(item.getClientApps().get(j).getClientType());
-            }
-
-            if (!clients.contains("android") && item.getClientApps().size() != 0) {
-              availableAppsCache.remove(i);
-            }
-
-              if (item.getClientApps().size() == 0) {
-              Log.i("AppChooser", "Item name: " + item.getName() );
-              runningAppsNames.add(item.getName());
-            }
-
-          }
-          Log.i("RosAndroid", "ListApps.Response: " + availableAppsCache.size() + " apps");
-          availableAppsCacheTime = System.currentTimeMillis();
-          runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
-              updateAppList(availableAppsCache, runningAppsCache);
-            }
-          });
+          AppListSnapshot snapshot = catalog.update(message.getAvailableApps(), message.getRunningApps(),
+                                                    System.currentTimeMillis());
+          clientAppIndex = new ClientAppIndex(snapshot.getAvailableApps());
+          Log.i("RosAndroid", "AppList: " + snapshot.getAvailableApps().size() + " apps");
+          appListUpdates.submit(snapshot);
+          confirmSwitch(snapshot.getRunningIndex());
         }
 
       });
@@ -428,6 +526,32 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
      
   }
 
+  /**
+   * Show the apps cached for the current robot, if any, while the robot is
+   * asked for a fresh list.  The cached running apps are not trusted: no
+   * app is shown as running until the robot has answered.
+   */
+  private void loadCatalog(ConnectedNode node) {
+    catalogCache = new AppCatalogCache(new File(getCacheDir(), "app_catalog"), node.getTopicMessageFactory());
+    catalogKey = getCurrentRobot().getRobotId().getMasterUri();
+    AppCatalogCache.Entry entry = catalogCache.load(catalogKey);
+    if (entry == null) {
+      return;
+    }
+    Log.i("RosAndroid", "showing cached app list: " + entry.snapshot.getAvailableApps().size() + " apps");
+    AppListSnapshot snapshot = catalog.restore(entry.snapshot.getAvailableApps(), entry.timeMillis);
+    clientAppIndex = new ClientAppIndex(snapshot.getAvailableApps());
+    cachedSnapshot = snapshot;
+    appListUpdates.submit(snapshot);
+  }
+
+  private void saveCatalog(AppListSnapshot snapshot) {
+    AppCatalogCache cache = catalogCache;
+    if (cache != null && catalogKey != null) {
+      cache.save(catalogKey, snapshot, catalog.getTimeMillis());
+    }
+  }
+
   @Override
   protected void onNodeDestroy(Node node) {
     Log.i("RosAndroid", "onNodeDestroy");
@@ -443,6 +567,7 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
   @Override
   protected void onPause() {
     super.onPause();
+    cancelSwitch();
     stopProgress();
     for (AlertDialog a : alerts) {
       a.dismiss();
@@ -479,16 +604,16 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
   public void stopApplicationsClicked(View view) {
     final AppChooser activity = this;
 
-    for (App i : runningAppsCache) {
+    for (App i : catalog.getSnapshot().getRunningApps()) {
       Log.i("AppLauncher", "Sending intent.");
-      AppLauncher.launch(this, i);
+      AppLauncher.launch(this, i, clientAppIndex);
       }
 
     stopProgress();
     progress = ProgressDialog.show(activity,
-               "Stopping Applications", "Stopping all applications...", true, false);
+               "Stopping Applications", "Stopping all applications...", true, true, progressCancelled);
     progress.setProgressStyle(ProgressDialog.STYLE_SPINNER);
-    appManager.stopApp("*", new ServiceResponseListener<StopAppResponse>() {
+    InFlightRequests.getInstance().stopApp(client, "*", new ServiceResponseListener<StopAppResponse>() {
       @Override
       public void onSuccess(StopAppResponse message) {
         if (!(message.getStopped() || message.getErrorCode() == StatusCodes.NOT_RUNNING)) {
@@ -550,9 +675,9 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
       final AppChooser activity = this;
       stopProgress();
       progress = ProgressDialog.show(activity,
-               "Stopping Application", "Stopping application...", true, false);
+               "Stopping Application", "Stopping application...", true, true, progressCancelled);
       progress.setProgressStyle(ProgressDialog.STYLE_SPINNER);
-      appManager.stopApp(app.getName(), new ServiceResponseListener<StopAppResponse>() {
+      InFlightRequests.getInstance().stopApp(client, app.getName(), new ServiceResponseListener<StopAppResponse>() {
         @Override
         public void onSuccess(StopAppResponse message) {
           if (!(message.getStopped() || message.getErrorCode() == StatusCodes.NOT_RUNNING)) {
@@ -589,6 +714,60 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
       });
   }
 
+  /**
+   * Stop several applications as one batch, behind a single progress
+   * dialog that closes once every stop has completed.
+   *
+   * @param coversAllRunning true if apps is every app running on the robot
+   */
+  public void stopApplications(List<App> apps, boolean coversAllRunning) {
+    final AppChooser activity = this;
+    final int count = apps.size();
+    stopProgress();
+    progress = ProgressDialog.show(activity,
+               "Stopping Applications", "Stopping " + count + " applications...", true, true, progressCancelled);
+    progress.setProgressStyle(ProgressDialog.STYLE_SPINNER);
+    BatchStop batch = new BatchStop(apps, coversAllRunning, new BatchStop.Callback() {
+      @Override
+      public void onProgress(final int completed, final int total) {
+        runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+              if (progress != null && total > 1) {
+                progress.setMessage("Stopped " + completed + " of " + total + " applications...");
+              }
+            }});
+      }
+      @Override
+      public void onFinished(final List<String> errors, long elapsedMillis) {
+        Log.i("AppChooser", "stopped " + count + " applications in " + elapsedMillis + " ms, "
+              + errors.size() + " errors");
+        stopProgress();
+        if (errors.isEmpty()) {
+          safeSetStatus("Stopped " + count + " applications in " + elapsedMillis + " ms");
+          return;
+        }
+        runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+              StringBuilder message = new StringBuilder("ERROR:");
+              for (String error : errors) {
+                message.append("\n").append(error);
+              }
+              AlertDialog d = new AlertDialog.Builder(activity).setTitle("Error!").setCancelable(false)
+                .setMessage(message.toString())
+                .setNeutralButton("Ok", new DialogInterface.OnClickListener() {
+                    public void onClick(DialogInterface dialog, int which) { }})
+                .create();
+              d.show();
+              alerts.add(d);
+            }});
+      }
+    });
+    Log.i("AppChooser", "stopping " + count + " applications with " + batch.getRequestCount() + " requests");
+    batch.start(client, InFlightRequests.getInstance());
+  }
+
   /*@Override
   public boolean onCreateOptionsMenu(Menu menu) {
     menu.clear();
@@ -631,16 +810,77 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
     case R.id.dev:
       mode = DEV;
       return true;
+    case R.id.service_latency:
+      showServiceLatency();
+      return true;
+    case R.id.install_timings:
+      showInstallTimings();
+      return true;
+    case R.id.traces:
+      exportLaunchTraces();
+      return true;
     default:
       return super.onOptionsItemSelected(item);
     }
   }
 
+  /** Hand the recent launch traces, as JSON, to whatever app the user picks. */
+  private void exportLaunchTraces() {
+    String json;
+    try {
+      json = LaunchTrace.exportJson();
+    } catch (JSONException e) {
+      Log.e("AppChooser", "cannot export launch traces", e);
+      return;
+    }
+    Log.i("AppChooser", "launch traces: " + json);
+    Intent intent = new Intent(Intent.ACTION_SEND);
+    intent.setType("text/plain");
+    intent.putExtra(Intent.EXTRA_TEXT, json);
+    try {
+      startActivity(Intent.createChooser(intent, "Export Launch Traces"));
+    } catch (ActivityNotFoundException e) {
+      safeSetStatus("No app to export launch traces to");
+    }
+  }
+
+  private String robotName() {
+    return getCurrentRobot() != null ? getCurrentRobot().getRobotName() : null;
+  }
+
+  private void showServiceLatency() {
+    ServiceLatency latency = ServiceLatency.getInstance();
+    latency.logStats();
+    AlertDialog d = new AlertDialog.Builder(this).setTitle("Service Latency")
+      .setMessage(latency.report())
+      .setNeutralButton("Ok", new DialogInterface.OnClickListener() {
+          public void onClick(DialogInterface dialog, int which) { }})
+      .create();
+    d.show();
+    alerts.add(d);
+  }
+
+  /** Show how long the installs finished since the app started took. */
+  private void showInstallTimings() {
+    List<InstallProgressTracker.Timing> timings = InstallProgressTracker.getTimings();
+    StringBuilder sb = new StringBuilder();
+    for (InstallProgressTracker.Timing timing : timings) {
+      sb.append(timing).append("\n");
+    }
+    AlertDialog d = new AlertDialog.Builder(this).setTitle("Install Timings")
+      .setMessage(timings.isEmpty() ? "No installs have finished yet." : sb.toString())
+      .setNeutralButton("Ok", new DialogInterface.OnClickListener() {
+          public void onClick(DialogInterface dialog, int which) { }})
+      .create();
+    d.show();
+    alerts.add(d);
+  }
+
 @Override
   public void onCreateContextMenu(ContextMenu menu, View v, ContextMenuInfo menuInfo) {
     if (v.getId()==R.id.gridview) {
       AdapterView.AdapterContextMenuInfo info = (AdapterView.AdapterContextMenuInfo) menuInfo;
-      menu.setHeaderTitle(availableAppsCache.get(info.position).getDisplayName());
+      menu.setHeaderTitle(appAdapter.getItem(info.position).getDisplayName());
       String[] menuItems = getResources().getStringArray(R.array.app_chooser_context_menu);
       for (int i = 0; i<menuItems.length; i++) {
         menu.add(Menu.NONE, i, i, menuItems[i]);
@@ -652,12 +892,13 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
   public boolean onContextItemSelected(MenuItem item) {
     AdapterView.AdapterContextMenuInfo info = (AdapterView.AdapterContextMenuInfo)item.getMenuInfo();
     int menuItemIndex = item.getItemId();
-    App app = availableAppsCache.get(info.position);
+    App app = appAdapter.getItem(info.position);
     switch (menuItemIndex) {
       case 0:
-        //This is a hack because App Chooser currently doesn't use 'isClientApp' parameter
-        onAppClicked(app, true);
-        AppLauncher.launch(AppChooser.this, app);
+        // AppLauncher.launch calls onAppClicked itself.
+        LaunchTrace trace = LaunchTrace.begin(app.getName(), robotName());
+        trace.mark("context_menu");
+        AppLauncher.launch(AppChooser.this, app, clientAppIndex, trace);
         break;
       case 1:
         stopApplication(app);
@@ -677,7 +918,8 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
     switch (id) {
       case CLOSE_EXISTING:
         builder.setTitle("Stop Current Application?");
-        builder.setMessage("There is an application already running. You cannot run two applications at once. Would you like to stop the current application?");
+        builder.setMessage("There is an application already running. You cannot run two applications at once. Would you like to stop the current application"
+                           + (switchTarget != null ? " and start " + switchTarget.getDisplayName() + "?" : "?"));
         builder.setPositiveButton( "Stop Current", new DialogButtonClickHandler() );
         builder.setNegativeButton( "Don't Stop", new DialogButtonClickHandler());
         dialog = builder.create();
@@ -701,11 +943,17 @@ public class AppChooser extends RosAppActivity implements AppManager.Termination
       switch( clicked ) {
         case DialogInterface.BUTTON_POSITIVE:
           removeDialog(CLOSE_EXISTING);
-          for (int i = 0; i < runningAppsCache.size(); i++) {
-            stopApplication(runningAppsCache.get(i));
+          if (switchTarget != null) {
+            switchToApp(switchTarget, switchTapMillis, switchTrace);
+            switchTarget = null;
+            switchTrace = null;
+          } else {
+            stopApplications(catalog.getSnapshot().getRunningApps(), true);
           }
           break;
         case DialogInterface.BUTTON_NEGATIVE:
+          switchTarget = null;
+          switchTrace = null;
           removeDialog(CLOSE_EXISTING);
           break;
         case DialogInterface.BUTTON_NEUTRAL:
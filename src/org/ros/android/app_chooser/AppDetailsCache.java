@@ -0,0 +1,170 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import android.util.Log;
+import app_manager.ExchangeApp;
+import app_manager.GetAppDetailsResponse;
+import org.ros.exception.RemoteException;
+import org.ros.node.service.ServiceResponseListener;
+import org.ros.android.app_chooser.core.AppManagerClient;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * GetAppDetails responses, keyed by app name and valid only while the
+ * exchange lists report the same version of the app.  Can also prefetch
+ * details in the background, with a limit on concurrent requests.
+ */
+public class AppDetailsCache {
+  private static final int MAX_PREFETCH_IN_FLIGHT = 2;
+  private static AppDetailsCache instance;
+
+  private static class Entry {
+    final String version;
+    final ExchangeApp details;
+
+    Entry(String version, ExchangeApp details) {
+      this.version = version;
+      this.details = details;
+    }
+  }
+
+  private final HashMap<String, Entry> entries = new HashMap<String, Entry>();
+  private final LinkedList<ExchangeApp> prefetchQueue = new LinkedList<ExchangeApp>();
+  private final HashSet<String> prefetchInFlight = new HashSet<String>();
+
+  public static synchronized AppDetailsCache getInstance() {
+    if (instance == null) {
+      instance = new AppDetailsCache();
+    }
+    return instance;
+  }
+
+  /**
+   * Version string of an exchange list entry.  Both the installed and the
+   * latest version count: either changing makes cached details stale.
+   */
+  public static String versionOf(ExchangeApp app) {
+    return app.getVersion() + "/" + app.getLatestVersion();
+  }
+
+  /** Returns cached details for the app at the given version, or null. */
+  public synchronized ExchangeApp get(String name, String version) {
+    Entry entry = entries.get(name);
+    if (entry == null || !entry.version.equals(version)) {
+      return null;
+    }
+    return entry.details;
+  }
+
+  public synchronized void put(String name, String version, ExchangeApp details) {
+    entries.put(name, new Entry(version, details));
+  }
+
+  /**
+   * Drop details for apps whose version differs from the one in the given
+   * exchange lists, or that no longer appear in them.
+   */
+  public synchronized void invalidate(List<ExchangeApp> availableApps, List<ExchangeApp> installedApps) {
+    HashMap<String, String> versions = new HashMap<String, String>();
+    for (ExchangeApp app : availableApps) {
+      versions.put(app.getName(), versionOf(app));
+    }
+    // Installed entries carry the installed version, so they take precedence.
+    for (ExchangeApp app : installedApps) {
+      versions.put(app.getName(), versionOf(app));
+    }
+    entries.keySet().retainAll(versions.keySet());
+    for (String name : versions.keySet()) {
+      Entry entry = entries.get(name);
+      if (entry != null && !entry.version.equals(versions.get(name))) {
+        entries.remove(name);
+      }
+    }
+  }
+
+  /**
+   * Fetch details for the given apps in the background, skipping those
+   * already cached or being fetched.  Replaces any earlier queued apps.
+   */
+  public void prefetch(AppManagerClient client, List<ExchangeApp> apps) {
+    synchronized (this) {
+      prefetchQueue.clear();
+      for (ExchangeApp app : apps) {
+        if (get(app.getName(), versionOf(app)) == null && !prefetchInFlight.contains(app.getName())) {
+          prefetchQueue.add(app);
+        }
+      }
+    }
+    pumpPrefetch(client);
+  }
+
+  private void pumpPrefetch(final AppManagerClient client) {
+    while (true) {
+      final ExchangeApp app;
+      synchronized (this) {
+        if (prefetchInFlight.size() >= MAX_PREFETCH_IN_FLIGHT || prefetchQueue.isEmpty()) {
+          return;
+        }
+        app = prefetchQueue.removeFirst();
+        prefetchInFlight.add(app.getName());
+      }
+      final String version = versionOf(app);
+      client.getAppDetails(app.getName(), new ServiceResponseListener<GetAppDetailsResponse>() {
+          @Override
+          public void onSuccess(GetAppDetailsResponse message) {
+            synchronized (AppDetailsCache.this) {
+              prefetchInFlight.remove(app.getName());
+              if (message.getApp() != null) {
+                put(app.getName(), version, message.getApp());
+              }
+            }
+            pumpPrefetch(client);
+          }
+
+          @Override
+          public void onFailure(RemoteException e) {
+            Log.w("AppDetailsCache", "Could not prefetch details for " + app.getName() + ": " + e.getMessage());
+            synchronized (AppDetailsCache.this) {
+              prefetchInFlight.remove(app.getName());
+            }
+            pumpPrefetch(client);
+          }});
+    }
+  }
+}
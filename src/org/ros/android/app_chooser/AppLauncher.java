@@ -42,58 +42,75 @@ import android.util.Log;
 
 import ros.android.activity.AppManager;
 import android.net.Uri;
-import app_manager.ClientApp;
 
-import java.util.ArrayList;
+import java.util.List;
 
 public class AppLauncher {
   static private final String CLIENT_TYPE = "android";
 
   /** Launch a client app for the given robot app. */
   static public void launch(final Activity parentActivity, app_manager.App app) {
-    ArrayList<ClientAppData> android_apps = new ArrayList<ClientAppData>();
+    launch(parentActivity, app, ClientAppIndex.forApp(app));
+  }
+
+  /**
+   * Launch a client app for the given robot app, using clients already
+   * parsed into index.
+   */
+  static public void launch(final Activity parentActivity, app_manager.App app, ClientAppIndex index) {
+    launch(parentActivity, app, index, null);
+  }
 
+  /**
+   * Launch a client app for the given robot app, adding the steps to trace.
+   *
+   * @param trace trace of this launch, or null if it is not traced
+   */
+  static public void launch(final Activity parentActivity, app_manager.App app, ClientAppIndex index,
+                            LaunchTrace trace) {
+    LaunchTrace.Span launchSpan = LaunchTrace.beginSpan(trace, "launch");
     if (parentActivity instanceof AppChooser) {
-      ((AppChooser)parentActivity).onAppClicked(app, app.getClientApps().size() > 0);
+      ((AppChooser)parentActivity).onAppClicked(app, app.getClientApps().size() > 0, trace);
     } else {
       Log.i("RosAndroid", "Could not launch becase parent is not an appchooser");
       if (app.getClientApps().size() == 0) {
         Log.e("RosAndroid", "Not launching application!!!");
+        LaunchTrace.endSpan(launchSpan, "no client apps");
         return;
       }
     }
 
+    launchClient(parentActivity, app, index, trace);
+    LaunchTrace.endSpan(launchSpan, null);
+  }
+
+  /**
+   * Start the android client of a robot app that is already running, or
+   * offer to install it.
+   *
+   * @param trace trace of this launch, or null if it is not traced
+   */
+  static public void launchClient(final Activity parentActivity, app_manager.App app, ClientAppIndex index,
+                                  LaunchTrace trace) {
     if (app.getClientApps().size() == 0) {
       return;
     }
 
-    Log.i("RosAndroid", "launching robot app " + app.getName() + ".  Found " + app.getClientApps().size()
-        + " client apps.");
-
-    // Loop over all possible client apps to find the android ones.
-    for (int i = 0; i < app.getClientApps().size(); i++) {
-      ClientApp client_app = app.getClientApps().get(i);
-      if (client_app.getClientType() != null && client_app.getClientType().equals(CLIENT_TYPE)) {
-        //android_apps.add(new ClientAppData(client_app));
-    	  ClientAppData data =  new ClientAppData(client_app);
-    	 android_apps.add(data);
-      }
-    }
+    ClientAppIndex.Entry entry = index.get(app);
+    List<ClientAppData> android_apps = entry.clients;
 
     Log.i("RosAndroid", "launching robot app " + app.getName() + ".  Found " + android_apps.size()
-        + " android apps.");
-
-    // TODO: filter out android apps which are not appropriate for
-    // this device by looking at specific entries in the manager_data_
-    // map of each app in android_apps.
-    ArrayList<ClientAppData> appropriateAndroidApps = android_apps;
+        + " android apps of " + app.getClientApps().size() + " client apps.");
 
+    // Keep only the android apps that suit this device, best match first.
+    DeviceCapabilities device = DeviceCapabilities.get(parentActivity);
+    List<Integer> appropriateAndroidApps = ClientAppMatcher.rank(android_apps, device);
 
-    // TODO: support multiple android apps
-    if (appropriateAndroidApps.size() != 1) {
+    if (appropriateAndroidApps.size() == 0) {
       AlertDialog.Builder dialog = new AlertDialog.Builder(parentActivity);
-      dialog.setTitle("Wrong Number of Android Apps");
-      dialog.setMessage("There are " + appropriateAndroidApps.size() + " valid android apps, not 1 as there should be.");
+      dialog.setTitle("No Suitable Android App");
+      dialog.setMessage("None of the " + android_apps.size() + " android apps for this robot app support this device"
+                        + " (screen size " + device.getScreenSize() + ", API level " + device.getApiLevel() + ").");
       dialog.setPositiveButton("Ok", new DialogInterface.OnClickListener() {
           @Override
           public void onClick(DialogInterface dlog, int i) {
@@ -103,25 +120,30 @@ public class AppLauncher {
       return;
     }
 
-    //TODO: this installs the last android app in the set.
-    String className = "";
-
-    // Loop over all android apps, trying to launch one.
-    for (int i = 0; i < appropriateAndroidApps.size(); i++) {
-      ClientAppData appData = appropriateAndroidApps.get(i);
-      Intent intent = appData.createIntent();
-      intent.putExtra(AppManager.PACKAGE + ".robot_app_name", app.getName());
+    // Ask the package manager which client is installed instead of trying
+    // startActivity on each in turn.
+    LaunchTrace.Span resolveSpan = LaunchTrace.beginSpan(trace, "resolve");
+    Intent intent = index.resolve(parentActivity.getPackageManager(), app, appropriateAndroidApps);
+    LaunchTrace.endSpan(resolveSpan, intent == null ? "not installed" : null);
+    if (intent != null) {
+      LaunchTrace.Span startSpan = LaunchTrace.beginSpan(trace, "startActivity");
       try {
-        className = intent.getAction();
         Log.i("RosAndroid", "trying to startActivity( action: " + intent.getAction() + " )");
         parentActivity.startActivity(intent);
+        LaunchTrace.endSpan(startSpan, null);
         return;
       } catch (ActivityNotFoundException e) {
+        LaunchTrace.endSpan(startSpan, "activity not found");
         Log.i("RosAndroid", "activity not found for action: " + intent.getAction());
       }
     }
 
-    final String installPackage = className.substring(0, className.lastIndexOf("."));
+    // Offer the best match for this device from the market.
+    final String installPackage = ClientAppMatcher.packageOf(android_apps.get(appropriateAndroidApps.get(0)));
+    if (installPackage == null) {
+      Log.e("RosAndroid", "no package known for android app of " + app.getName());
+      return;
+    }
 
     Log.i("RosAndroid", "showing not-installed dialog.");
 
@@ -0,0 +1,228 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+import app_manager.App;
+import app_manager.StartAppResponse;
+import app_manager.StopAppResponse;
+import org.ros.exception.RemoteException;
+import org.ros.node.service.ServiceResponseListener;
+import org.ros.android.app_chooser.core.RunningAppIndex;
+import org.ros.android.app_chooser.core.AppManagerClient;
+import org.ros.android.app_chooser.core.BatchStop;
+import org.ros.android.app_chooser.core.InFlightRequests;
+
+import java.util.List;
+
+/**
+ * Switches the robot from the apps it is running to another app in one
+ * step: the running apps are stopped as a batch, and the start of the new
+ * app is sent as soon as either the stop responses or the next AppList show
+ * that nothing is running any more.  All state changes happen on the
+ * handler's thread.
+ */
+public class AppSwitch {
+  public interface Callback {
+    void onStarting(App app);
+
+    /** @param latencyMillis time from the tap that asked for the switch */
+    void onStarted(App app, StartAppResponse message, long latencyMillis);
+
+    void onFailed(App app, String message);
+  }
+
+  private enum State { STOPPING, STARTING, DONE }
+
+  private final AppManagerClient client;
+  private final InFlightRequests requests;
+  private final Handler handler;
+  private final App target;
+  private final long tapMillis;
+  private final LaunchTrace trace;
+  private final Callback callback;
+  private State state = State.STOPPING;
+  // Set when the switch timed out after the start was sent.  No client is
+  // launched for the target then, so if the robot starts it after all it
+  // is stopped again rather than left running unseen.
+  private boolean stopLateStart;
+  private final Runnable timeout = new Runnable() {
+      @Override
+      public void run() {
+        stopLateStart = state == State.STARTING;
+        fail("Timed out " + (state == State.STOPPING ? "stopping the running application" : "starting " + target.getDisplayName()));
+      }};
+
+  /**
+   * @param tapMillis SystemClock.elapsedRealtime() of the tap that asked for
+   *   the switch; latency is reported from there
+   * @param trace trace of the launch of target, or null if it is not traced
+   */
+  public AppSwitch(AppManagerClient client, InFlightRequests requests, Handler handler, App target, long tapMillis,
+                   LaunchTrace trace, Callback callback) {
+    this.client = client;
+    this.requests = requests;
+    this.handler = handler;
+    this.target = target;
+    this.tapMillis = tapMillis;
+    this.trace = trace;
+    this.callback = callback;
+  }
+
+  public App getTarget() {
+    return target;
+  }
+
+  /**
+   * Stop the given running apps and start the target once they are gone.
+   * Must be run on the handler's thread.
+   */
+  public void start(List<App> runningApps, long timeoutMillis) {
+    handler.postDelayed(timeout, timeoutMillis);
+    new BatchStop(runningApps, true, new BatchStop.Callback() {
+      @Override
+      public void onProgress(int completed, int total) {
+      }
+      @Override
+      public void onFinished(final List<String> errors, final long elapsedMillis) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+              if (state != State.STOPPING) {
+                return;
+              }
+              if (errors.isEmpty()) {
+                Log.i("AppSwitch", "stop confirmed by response after " + elapsedMillis + " ms");
+                startTarget();
+              } else {
+                fail(errors.get(0));
+              }
+            }});
+      }
+    }).start(client, requests);
+  }
+
+  /**
+   * Feed an AppList or ListApps result to the switch; an empty running set
+   * confirms the stop without waiting for the stop responses.  Must be run
+   * on the handler's thread.
+   */
+  public void onRunningApps(RunningAppIndex running) {
+    if (state == State.STOPPING && running.isEmpty()) {
+      Log.i("AppSwitch", "stop confirmed by app list");
+      startTarget();
+    }
+  }
+
+  /**
+   * Abandon the switch.  A start already sent cannot be recalled, but its
+   * response is no longer reported.  Must be run on the handler's thread.
+   */
+  public void cancel() {
+    if (state != State.DONE) {
+      Log.i("AppSwitch", "switch to " + target.getName() + " cancelled in state " + state);
+      finish();
+    }
+  }
+
+  public boolean isDone() {
+    return state == State.DONE;
+  }
+
+  private void startTarget() {
+    state = State.STARTING;
+    callback.onStarting(target);
+    final LaunchTrace.Span startSpan = LaunchTrace.beginSpan(trace, "startApp");
+    requests.startApp(client, target.getName(), new ServiceResponseListener<StartAppResponse>() {
+      @Override
+      public void onSuccess(final StartAppResponse message) {
+        LaunchTrace.endSpan(startSpan, message.getStarted() ? null : "error " + message.getErrorCode());
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+              if (state != State.STARTING) {
+                if (stopLateStart && message.getStarted()) {
+                  stopTarget();
+                }
+                return;
+              }
+              finish();
+              long latency = SystemClock.elapsedRealtime() - tapMillis;
+              Log.i("AppSwitch", "switch to " + target.getName() + ": started " + message.getStarted()
+                    + " after " + latency + " ms from tap");
+              callback.onStarted(target, message, latency);
+            }});
+      }
+      @Override
+      public void onFailure(final RemoteException e) {
+        LaunchTrace.endSpan(startSpan, "failed: " + e.getMessage());
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+              if (state == State.STARTING) {
+                fail("Failed: " + e.getMessage());
+              }
+            }});
+      }
+    });
+  }
+
+  /** Stop the target, which the robot started after the switch timed out. */
+  private void stopTarget() {
+    Log.i("AppSwitch", target.getName() + " started after the switch timed out, stopping it");
+    requests.stopApp(client, target.getName(), new ServiceResponseListener<StopAppResponse>() {
+      @Override
+      public void onSuccess(StopAppResponse message) {
+        Log.i("AppSwitch", "stop of late " + target.getName() + ": stopped " + message.getStopped());
+      }
+      @Override
+      public void onFailure(RemoteException e) {
+        Log.w("AppSwitch", "could not stop late " + target.getName() + ": " + e.getMessage());
+      }
+    });
+  }
+
+  private void fail(String message) {
+    finish();
+    Log.i("AppSwitch", "switch to " + target.getName() + " failed: " + message);
+    callback.onFailed(target, message);
+  }
+
+  private void finish() {
+    state = State.DONE;
+    handler.removeCallbacks(timeout);
+  }
+}
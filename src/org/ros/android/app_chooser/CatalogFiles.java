@@ -0,0 +1,191 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import android.util.Log;
+import app_manager.Icon;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.ros.message.MessageFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Helpers for the on-disk catalog caches: one file per robot, written to a
+ * temporary file and renamed into place so a crash never leaves a
+ * half-written cache behind.  All writes go through a single writer
+ * thread, and a write still queued for a file is replaced by a newer one.
+ */
+public class CatalogFiles {
+  private static final HashMap<String, Contents> pending = new HashMap<String, Contents>();
+  private static final ExecutorService writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "CatalogFiles");
+        thread.setDaemon(true);
+        return thread;
+      }});
+
+  /** Writes the body of one cache file. */
+  public interface Contents {
+    void writeTo(DataOutputStream out) throws IOException;
+  }
+
+  private CatalogFiles() {
+  }
+
+  /** File in dir holding the cache for the robot at masterUri. */
+  public static File fileFor(File dir, String masterUri, String suffix) {
+    return new File(dir, masterUri.replaceAll("[^A-Za-z0-9.-]", "_") + suffix);
+  }
+
+  public static DataInputStream openForRead(File file) throws IOException {
+    return new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+  }
+
+  /**
+   * Queue contents to be written to file on the writer thread.  If a write
+   * of the same file has not started yet it writes these contents instead,
+   * so a burst of saves costs one write.
+   */
+  public static void write(final File file, Contents contents) {
+    synchronized (pending) {
+      if (pending.put(file.getPath(), contents) != null) {
+        return;
+      }
+    }
+    writer.execute(new Runnable() {
+        @Override
+        public void run() {
+          Contents latest;
+          synchronized (pending) {
+            latest = pending.remove(file.getPath());
+          }
+          writeNow(file, latest);
+        }});
+  }
+
+  private static void writeNow(File file, Contents contents) {
+    File temp = null;
+    DataOutputStream out = null;
+    try {
+      file.getParentFile().mkdirs();
+      temp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+      contents.writeTo(out);
+      out.close();
+      out = null;
+      if (!temp.renameTo(file)) {
+        throw new IOException("Could not rename cache file to " + file);
+      }
+      temp = null;
+    } catch (IOException e) {
+      Log.w("CatalogFiles", "Could not write cache file " + file, e);
+    } catch (RuntimeException e) {
+      Log.w("CatalogFiles", "Could not write cache file " + file, e);
+    } finally {
+      closeQuietly(out);
+      if (temp != null) {
+        temp.delete();
+      }
+    }
+  }
+
+  /** Log why file could not be read and delete it so it is not read again. */
+  public static void discard(File file, Exception e) {
+    Log.w("CatalogFiles", "Discarding unreadable cache file " + file, e);
+    file.delete();
+  }
+
+  public static void closeQuietly(java.io.Closeable c) {
+    if (c == null) {
+      return;
+    }
+    try {
+      c.close();
+    } catch (IOException e) {
+      Log.w("CatalogFiles", "Error closing cache file", e);
+    }
+  }
+
+  /**
+   * Read a count or length and check it against what is left of the file,
+   * so a corrupt file fails with an IOException rather than a huge or
+   * negative allocation.  Every counted item takes at least one byte.
+   */
+  public static int readLength(DataInputStream in) throws IOException {
+    int n = in.readInt();
+    if (n < 0 || n > in.available()) {
+      throw new IOException("Corrupt cache file: length " + n + " with " + in.available() + " bytes left");
+    }
+    return n;
+  }
+
+  public static void writeString(DataOutputStream out, String s) throws IOException {
+    out.writeBoolean(s != null);
+    if (s != null) {
+      out.writeUTF(s);
+    }
+  }
+
+  public static String readString(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  public static void writeIcon(DataOutputStream out, Icon icon) throws IOException {
+    writeString(out, icon.getFormat());
+    byte[] data = icon.getData().array();
+    out.writeInt(data.length);
+    out.write(data);
+  }
+
+  public static Icon readIcon(DataInputStream in, MessageFactory factory) throws IOException {
+    Icon icon = factory.newFromType(Icon._TYPE);
+    icon.setFormat(readString(in));
+    byte[] data = new byte[readLength(in)];
+    in.readFully(data);
+    icon.setData(ChannelBuffers.wrappedBuffer(data));
+    return icon;
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import android.content.ComponentName;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import app_manager.App;
+import app_manager.ClientApp;
+import ros.android.activity.AppManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The android clients of each robot app in an app list, parsed once when
+ * the list arrives rather than on every launch.  Each client comes with
+ * the intent that launches it.  Intents found to resolve on this device
+ * are remembered with their component filled in, across indexes, since a
+ * new index is built for every app list the robot publishes.
+ */
+public class ClientAppIndex {
+  static private final String CLIENT_TYPE = "android";
+
+  /** The android clients of one robot app. */
+  public static class Entry {
+    public final List<ClientAppData> clients;
+    // Launch intents for clients, in the same order.  Templates only;
+    // copy before changing or starting one.
+    final List<Intent> intents;
+
+    Entry(App app) {
+      ArrayList<ClientAppData> clients = new ArrayList<ClientAppData>();
+      ArrayList<Intent> intents = new ArrayList<Intent>();
+      for (int i = 0; i < app.getClientApps().size(); i++) {
+        ClientApp clientApp = app.getClientApps().get(i);
+        if (CLIENT_TYPE.equals(clientApp.getClientType())) {
+          ClientAppData data = new ClientAppData(clientApp);
+          Intent intent = data.createIntent();
+          intent.putExtra(AppManager.PACKAGE + ".robot_app_name", app.getName());
+          clients.add(data);
+          intents.add(intent);
+        }
+      }
+      this.clients = Collections.unmodifiableList(clients);
+      this.intents = intents;
+    }
+  }
+
+  // Resolved intents by app name and intent template, shared by all indexes.
+  private static final Map<String, Intent> resolved = new HashMap<String, Intent>();
+
+  private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+  /** Index the android clients of every app in apps. */
+  public ClientAppIndex(List<App> apps) {
+    for (int i = 0; i < apps.size(); i++) {
+      App app = apps.get(i);
+      entries.put(app.getName(), new Entry(app));
+    }
+  }
+
+  public static ClientAppIndex forApp(App app) {
+    return new ClientAppIndex(Collections.singletonList(app));
+  }
+
+  /** Clients of app; apps not in the indexed list are parsed on demand. */
+  public synchronized Entry get(App app) {
+    Entry entry = entries.get(app.getName());
+    if (entry == null) {
+      entry = new Entry(app);
+      entries.put(app.getName(), entry);
+    }
+    return entry;
+  }
+
+  /**
+   * Returns an intent for the first of the given clients of app that an
+   * activity on this device handles, ready to start, or null if none is
+   * installed.  A positive answer is remembered until clearResolved(); a
+   * negative one is asked again next time, so a client installed meanwhile
+   * is found.
+   *
+   * @param candidates indices into get(app).clients, in order of preference
+   */
+  public Intent resolve(PackageManager packageManager, App app, List<Integer> candidates) {
+    List<Intent> intents = get(app).intents;
+    String[] keys = new String[candidates.size()];
+    synchronized (resolved) {
+      for (int i = 0; i < candidates.size(); i++) {
+        keys[i] = app.getName() + " " + intents.get(candidates.get(i)).toUri(0);
+        Intent intent = resolved.get(keys[i]);
+        if (intent != null) {
+          return new Intent(intent);
+        }
+      }
+    }
+    for (int i = 0; i < candidates.size(); i++) {
+      Intent template = intents.get(candidates.get(i));
+      ResolveInfo info = packageManager.resolveActivity(template, PackageManager.MATCH_DEFAULT_ONLY);
+      if (info != null && info.activityInfo != null) {
+        Intent intent = new Intent(template);
+        intent.setComponent(new ComponentName(info.activityInfo.packageName, info.activityInfo.name));
+        synchronized (resolved) {
+          resolved.put(keys[i], intent);
+        }
+        return new Intent(intent);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Forget resolved intents, e.g. when returning from the market where a
+   * client may have been installed or removed.
+   */
+  public static void clearResolved() {
+    synchronized (resolved) {
+      resolved.clear();
+    }
+  }
+}
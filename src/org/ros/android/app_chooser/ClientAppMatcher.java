@@ -0,0 +1,141 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scores the android clients of a robot app against this device, using
+ * these optional manager_data entries of each client:
+ *
+ *   min-api, max-api: range of android API levels the client runs on
+ *   screen-sizes: comma separated list of small, normal, large, xlarge
+ *   package: package of the client, when intent-action does not start
+ *     with it
+ *
+ * A client whose constraints exclude the device is unsuitable.  Among the
+ * rest, an installed client beats one that is not, and declared matching
+ * constraints beat none.
+ */
+public class ClientAppMatcher {
+  public static final int UNSUITABLE = -1;
+
+  private static final int INSTALLED_SCORE = 4;
+  private static final int SCREEN_SCORE = 2;
+  private static final int API_SCORE = 1;
+
+  public static int score(ClientAppData client, DeviceCapabilities device) {
+    int score = 0;
+
+    String sizes = client.managerData.get("screen-sizes");
+    if (sizes != null) {
+      if (!contains(sizes, device.getScreenSize())) {
+        return UNSUITABLE;
+      }
+      score += SCREEN_SCORE;
+    }
+
+    String minApi = client.managerData.get("min-api");
+    String maxApi = client.managerData.get("max-api");
+    if (minApi != null || maxApi != null) {
+      try {
+        if (minApi != null && device.getApiLevel() < Integer.parseInt(minApi.trim())) {
+          return UNSUITABLE;
+        }
+        if (maxApi != null && device.getApiLevel() > Integer.parseInt(maxApi.trim())) {
+          return UNSUITABLE;
+        }
+        score += API_SCORE;
+      } catch (NumberFormatException e) {
+        // A malformed range constrains nothing.
+      }
+    }
+
+    String packageName = packageOf(client);
+    if (packageName != null && device.isInstalled(packageName)) {
+      score += INSTALLED_SCORE;
+    }
+    return score;
+  }
+
+  /**
+   * Indices into clients of the suitable ones, best first.  Clients with
+   * equal scores keep their order.
+   */
+  public static List<Integer> rank(List<ClientAppData> clients, DeviceCapabilities device) {
+    List<Integer> ranked = new ArrayList<Integer>(clients.size());
+    List<Integer> scores = new ArrayList<Integer>(clients.size());
+    for (int i = 0; i < clients.size(); i++) {
+      int score = score(clients.get(i), device);
+      if (score == UNSUITABLE) {
+        continue;
+      }
+      // Insertion sort; a robot app has a handful of clients at most.
+      int at = ranked.size();
+      while (at > 0 && scores.get(at - 1) < score) {
+        at--;
+      }
+      ranked.add(at, i);
+      scores.add(at, score);
+    }
+    return ranked;
+  }
+
+  /**
+   * Package of the client: its package entry, or else its intent action up
+   * to the last dot.
+   */
+  public static String packageOf(ClientAppData client) {
+    String packageName = client.managerData.get("package");
+    if (packageName != null) {
+      return packageName;
+    }
+    String action = client.managerData.get("intent-action");
+    if (action != null && action.lastIndexOf(".") > 0) {
+      return action.substring(0, action.lastIndexOf("."));
+    }
+    return null;
+  }
+
+  private static boolean contains(String list, String value) {
+    String[] items = list.split(",");
+    for (int i = 0; i < items.length; i++) {
+      if (items[i].trim().equals(value)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
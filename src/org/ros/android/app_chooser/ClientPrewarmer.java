@@ -0,0 +1,91 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.SystemClock;
+import android.util.Log;
+import app_manager.App;
+import ros.android.activity.AppManager;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Gets the android client of a robot app ready while the robot is still
+ * starting the app: its launch intent is resolved into the client index,
+ * and its package is sent a broadcast so that android starts the client's
+ * process before the activity is launched.  Clients that do not listen for
+ * the broadcast just skip the second step.
+ */
+public class ClientPrewarmer {
+  /** Broadcast to a client package when its activity is about to start. */
+  public static final String ACTION_PREWARM = AppManager.PACKAGE + ".PREWARM";
+
+  private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+  /**
+   * Resolve the client of app in the background and, if signalPackage is
+   * true, signal its package.
+   */
+  public static void prewarm(Context context, final App app, final ClientAppIndex index, final boolean signalPackage) {
+    if (app.getClientApps().size() == 0) {
+      return;
+    }
+    final Context appContext = context.getApplicationContext();
+    executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          long start = SystemClock.elapsedRealtime();
+          DeviceCapabilities device = DeviceCapabilities.get(appContext);
+          List<ClientAppData> clients = index.get(app).clients;
+          List<Integer> ranked = ClientAppMatcher.rank(clients, device);
+          Intent intent = index.resolve(appContext.getPackageManager(), app, ranked);
+          if (intent == null) {
+            Log.i("ClientPrewarmer", "no installed client for " + app.getName());
+            return;
+          }
+          if (signalPackage && intent.getComponent() != null) {
+            Intent signal = new Intent(ACTION_PREWARM);
+            signal.setPackage(intent.getComponent().getPackageName());
+            signal.putExtra(AppManager.PACKAGE + ".robot_app_name", app.getName());
+            appContext.sendBroadcast(signal);
+          }
+          Log.i("ClientPrewarmer", "prewarmed client of " + app.getName() + " in "
+                + (SystemClock.elapsedRealtime() - start) + " ms");
+        }});
+  }
+}
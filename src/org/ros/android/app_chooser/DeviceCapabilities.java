@@ -0,0 +1,119 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.Configuration;
+import android.os.Build;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Properties of this device that client apps can be matched against.
+ * Read once per process; package lookups are cached as they are made.
+ */
+public class DeviceCapabilities {
+  private static DeviceCapabilities instance;
+
+  private final int apiLevel;
+  private final String screenSize;
+  private final PackageManager packageManager;
+  private final Map<String, Boolean> installed = new HashMap<String, Boolean>();
+
+  DeviceCapabilities(int apiLevel, String screenSize, PackageManager packageManager) {
+    this.apiLevel = apiLevel;
+    this.screenSize = screenSize;
+    this.packageManager = packageManager;
+  }
+
+  public static synchronized DeviceCapabilities get(Context context) {
+    if (instance == null) {
+      Context app = context.getApplicationContext();
+      int layout = app.getResources().getConfiguration().screenLayout & Configuration.SCREENLAYOUT_SIZE_MASK;
+      instance = new DeviceCapabilities(Build.VERSION.SDK_INT, screenSizeName(layout), app.getPackageManager());
+      Log.i("DeviceCapabilities", "api level: " + instance.apiLevel + " screen size: " + instance.screenSize);
+    }
+    return instance;
+  }
+
+  /** The names client apps use for each screen size bucket. */
+  static String screenSizeName(int layout) {
+    switch (layout) {
+      case Configuration.SCREENLAYOUT_SIZE_SMALL:
+        return "small";
+      case Configuration.SCREENLAYOUT_SIZE_NORMAL:
+        return "normal";
+      case Configuration.SCREENLAYOUT_SIZE_LARGE:
+        return "large";
+      case Configuration.SCREENLAYOUT_SIZE_XLARGE:
+        return "xlarge";
+      default:
+        return "undefined";
+    }
+  }
+
+  public int getApiLevel() {
+    return apiLevel;
+  }
+
+  /** One of small, normal, large, xlarge or undefined. */
+  public String getScreenSize() {
+    return screenSize;
+  }
+
+  public synchronized boolean isInstalled(String packageName) {
+    Boolean result = installed.get(packageName);
+    if (result == null) {
+      try {
+        packageManager.getPackageInfo(packageName, 0);
+        result = true;
+      } catch (PackageManager.NameNotFoundException e) {
+        result = false;
+      }
+      installed.put(packageName, result);
+    }
+    return result;
+  }
+
+  /**
+   * Forget cached package lookups, e.g. when returning from the market
+   * where a client may have been installed.
+   */
+  public synchronized void clearInstalled() {
+    installed.clear();
+  }
+}
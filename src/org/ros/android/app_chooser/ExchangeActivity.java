@@ -38,6 +38,8 @@ import ros.android.activity.RosAppActivity;
 import ros.android.activity.AppManager;
 import android.widget.LinearLayout;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.SystemClock;
 
 import org.ros.node.ConnectedNode;
 import org.ros.node.Node;
@@ -64,6 +66,8 @@ import android.util.Log;
 import android.widget.AdapterView;
 import android.widget.AdapterView.OnItemClickListener;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import app_manager.AppInstallationState;
 import app_manager.ExchangeApp;
 import app_manager.GetAppDetails;
@@ -84,6 +88,7 @@ import android.widget.Button;
 import android.app.ProgressDialog;
 import android.app.Dialog;
 import java.util.Map;
+import java.io.File;
 import java.io.InputStreamReader;
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -95,9 +100,12 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.yaml.snakeyaml.Yaml;
 import org.ros.node.parameter.ParameterTree;
-import android.graphics.BitmapFactory;
-import android.graphics.Bitmap;
 import android.widget.ImageView;
+import org.ros.android.app_chooser.core.ExchangeSnapshot;
+import org.ros.android.app_chooser.core.AppManagerClient;
+import org.ros.android.app_chooser.core.CallCancelledException;
+import org.ros.android.app_chooser.core.PendingCall;
+import org.ros.android.app_chooser.core.ExchangeSelection;
 
 /**
  * Show a grid of applications that a given robot is capable of, and launch
@@ -111,8 +119,10 @@ public class ExchangeActivity extends RosAppActivity {
   private ListView availableAppListView;
   private String appSelected;
   private String appSelectedDisplay;
-  private ArrayList<ExchangeApp> availableAppsCache;
-  private ArrayList<ExchangeApp> installedAppsCache;
+  private ExchangeSnapshot exchangeSnapshot = ExchangeSnapshot.empty();
+  private ExchangeCatalogCache exchangeCache;
+  private String exchangeCacheKey;
+  private long lastRemoteUpdateMillis;
   private LinearLayout appExchangeView;
   private LinearLayout installedAppsView;
   private LinearLayout appDetailView;
@@ -127,11 +137,17 @@ public class ExchangeActivity extends RosAppActivity {
   private enum State { INSTALLED_APPS, APP_EXCHANGE };
   private State lastState;
   private Dialog dialog;
-  private TextView dialog_text;
+  private InstallLogConsole installLog;
+  private volatile InstallProgressTracker installProgress;
+  private volatile PendingCall installCall;
+  private volatile AppManagerClient client;
+  private UpdateCoalescer<InstallProgressTracker.Event> installProgressUpdates;
   private Button button;
   private static final int INSTALLED_ITEM_ID = 0;
   private static final int AVAILABLE_ITEM_ID = 1;
   private static final int INSTALL_DIALOG = 0;
+  private int adapterRebuilds;
+  private int adapterRebuildsAtLastAction;
 
   @Override
   public void onCreate(Bundle savedInstanceState) {
@@ -139,6 +155,7 @@ public class ExchangeActivity extends RosAppActivity {
     setDashboardResource(R.id.exchange_top_bar);
     setMainWindowResource(R.layout.exchange);
     super.onCreate(savedInstanceState);
+    ServiceCalls.configure(getResources());
     setTitle("App Exchange");
     setContentView(R.layout.exchange);
     robotNameView = (TextView) findViewById(R.id.exchange_robot_name_view);
@@ -152,24 +169,69 @@ public class ExchangeActivity extends RosAppActivity {
     exchangeAppDetailTextView = (TextView)findViewById(R.id.exchange_app_detail_text_view);
     installAppButton = (Button)findViewById(R.id.install_app_button);
     uninstallAppButton = (Button)findViewById(R.id.uninstall_app_button);
+    installLog = new InstallLogConsole(new Handler(), getResources().getInteger(R.integer.install_log_max_lines));
+    installProgressUpdates = new UpdateCoalescer<InstallProgressTracker.Event>("InstallProgress", new Handler(), 100,
+        new UpdateCoalescer.Renderer<InstallProgressTracker.Event>() {
+          @Override
+          public void render(InstallProgressTracker.Event event) {
+            showInstallProgress(event);
+          }});
+
+    installedAppListView.setTextFilterEnabled(true);
+    availableAppListView.setTextFilterEnabled(true);
+    registerForContextMenu(installedAppListView);
+    registerForContextMenu(availableAppListView);
+    installedAppListView.setOnItemClickListener(new OnItemClickListener() {
+        public void onItemClick(AdapterView adapter, View view, int index, long id) {
+          selectApp(installed_application_list[index], installed_application_display[index]);
+        }});
+    availableAppListView.setOnItemClickListener(new OnItemClickListener() {
+        public void onItemClick(AdapterView adapter, View view, int index, long id) {
+          selectApp(available_application_list[index], available_application_display[index]);
+        }});
     startInstalledApps();
   }
 
-  private static boolean appInList(ArrayList<ExchangeApp> list, String name) {
-    for (ExchangeApp a : list) {
-      if (a.getName() == name) {
-        return true;
-      }
-    }
-    return false;
+  /**
+   * Open the detail view for an app.  Only the detail pane is redrawn; the
+   * lists are left alone.  Must be run in UI thread.
+   */
+  private void selectApp(String name, String display) {
+    appSelected = name;
+    appSelectedDisplay = display;
+    Log.i("ExchangeActivity", appSelected);
+    renderSelection();
+    installedAppsView.setVisibility(appExchangeView.GONE);
+    appExchangeView.setVisibility(appExchangeView.GONE);
+    appDetailView.setVisibility(appDetailView.VISIBLE);
+    exchangeAppDetailTextView.setText("Loading...");
+    IconLoader.getInstance().showPlaceholder((ImageView)ExchangeActivity.this.findViewById(R.id.exchange_icon));
+    updateAppDetails();
+    logAdapterRebuilds("select " + name);
+  }
+
+  /**
+   * Log how many list adapters were rebuilt since the previous user action.
+   */
+  private void logAdapterRebuilds(String action) {
+    Log.i("ExchangeActivity", action + ": " + (adapterRebuilds - adapterRebuildsAtLastAction)
+          + " adapter rebuilds since last action, " + adapterRebuilds + " total");
+    adapterRebuildsAtLastAction = adapterRebuilds;
   }
 
   public void installApp(View view) {
     final ExchangeActivity activity = this;
+    final String name = appSelected;
+    // A fresh dialog each time, so the console is attached to it and no
+    // text or Done button is left over from the last install.
+    removeDialog(INSTALL_DIALOG);
     showDialog(INSTALL_DIALOG);
-    appManager.installApp(appSelected, new ServiceResponseListener<InstallAppResponse>() {
+    installProgress = new InstallProgressTracker(getCurrentRobot().getRobotName(), name, SystemClock.elapsedRealtime());
+    installCall = client.installApp(name, new ServiceResponseListener<InstallAppResponse>() {
       @Override
       public void onSuccess(InstallAppResponse message) {
+        installCall = null;
+        finishInstallProgress(message.getInstalled());
         if (!message.getInstalled() ) {
           final String errorMessage = message.getMessage();
           runOnUiThread(new Runnable() {
@@ -188,13 +250,20 @@ public class ExchangeActivity extends RosAppActivity {
             public void run() {
               ProgressBar progress_bar = (ProgressBar) dialog.findViewById(R.id.progress_bar);
               progress_bar.setVisibility(View.GONE);
+              dialog.findViewById(R.id.cancel_button).setVisibility(View.GONE);
               button.setVisibility(View.VISIBLE);
               
             }}); 
       }
       @Override
       public void onFailure(final RemoteException e) {
+        if (e instanceof CallCancelledException) {
+          // cancelInstall has already closed the dialog.
+          return;
+        }
         e.printStackTrace();
+        installCall = null;
+        finishInstallProgress(false);
         runOnUiThread(new Runnable() {
             @Override
             public void run() {
@@ -210,12 +279,73 @@ public class ExchangeActivity extends RosAppActivity {
   }
  
 
+  /**
+   * Stop waiting for the installation in progress and close its dialog.
+   * The robot may still finish the installation; the exchange lists will
+   * show it when it does.
+   */
+  private void cancelInstall() {
+    PendingCall call = installCall;
+    installCall = null;
+    if (call != null) {
+      call.cancel();
+      finishInstallProgress(false);
+    }
+    removeDialog(INSTALL_DIALOG);
+  }
+
+  private void finishInstallProgress(boolean success) {
+    InstallProgressTracker tracker = installProgress;
+    installProgress = null;
+    if (tracker != null) {
+      Log.i("ExchangeActivity", "install " + tracker.finish(success, SystemClock.elapsedRealtime()));
+    }
+  }
+
+  /**
+   * Show parsed install progress in the installation dialog.  Must be run
+   * in UI thread.
+   */
+  private void showInstallProgress(InstallProgressTracker.Event event) {
+    if (dialog == null) {
+      return;
+    }
+    ProgressBar bar = (ProgressBar) dialog.findViewById(R.id.install_progress_bar);
+    TextView eta = (TextView) dialog.findViewById(R.id.install_eta);
+    bar.setVisibility(View.VISIBLE);
+    bar.setIndeterminate(event.percent < 0);
+    if (event.percent >= 0) {
+      bar.setProgress(event.percent);
+    }
+    StringBuilder text = new StringBuilder(event.phase.toString().toLowerCase());
+    if (event.packageName != null) {
+      text.append(" ").append(event.packageName);
+    }
+    if (event.percent >= 0) {
+      text.append(": ").append(event.percent).append("%");
+    }
+    if (event.etaMillis >= 0) {
+      text.append(", about ").append((event.etaMillis + 999) / 1000).append(" s left");
+    }
+    eta.setText(text);
+    eta.setVisibility(View.VISIBLE);
+  }
+
   public void uninstallApp(View view) {
     final ExchangeActivity activity = this;
+    final String name = appSelected;
+    final PendingCall[] call = new PendingCall[1];
     final ProgressDialog progress = ProgressDialog.show(activity,
-               "Uninstalling App", "Uninstalling " + appSelectedDisplay + "...", true, false);
+               "Uninstalling App", "Uninstalling " + appSelectedDisplay + "...", true, true,
+               new DialogInterface.OnCancelListener() {
+                 @Override
+                 public void onCancel(DialogInterface dialog) {
+                   if (call[0] != null) {
+                     call[0].cancel();
+                   }
+                 }});
     progress.setProgressStyle(ProgressDialog.STYLE_SPINNER);
-    appManager.uninstallApp(appSelected, new ServiceResponseListener<UninstallAppResponse>() {
+    call[0] = client.uninstallApp(name, new ServiceResponseListener<UninstallAppResponse>() {
       @Override
       public void onSuccess(UninstallAppResponse message) {
         if (!message.getUninstalled()) {
@@ -238,6 +368,10 @@ public class ExchangeActivity extends RosAppActivity {
       }
       @Override
       public void onFailure(final RemoteException e) {
+        if (e instanceof CallCancelledException) {
+          // Cancelled from the progress dialog, which is already gone.
+          return;
+        }
         e.printStackTrace();
         runOnUiThread(new Runnable() {
             @Override
@@ -291,7 +425,8 @@ public class ExchangeActivity extends RosAppActivity {
   public void closeDetailView(View view) {
     appSelected = null;
     appSelectedDisplay = null;
-    update(availableAppsCache, installedAppsCache);
+    renderSelection();
+    logAdapterRebuilds("close details");
   }
 
   
@@ -299,12 +434,24 @@ public class ExchangeActivity extends RosAppActivity {
     finish();
   }
 
+  /**
+   * Show details of the selected app, from the details cache if it holds
+   * them for the version in the current lists, otherwise from the robot.
+   * Must be run in UI thread.
+   */
   public void updateAppDetails() {
-    final AppManager man = appManager;
+    final AppManagerClient man = client;
     if (man == null) {
       return;
     }
-    man.getAppDetails(appSelected, new ServiceResponseListener<GetAppDetailsResponse>() {
+    final String name = appSelected;
+    final String version = catalogVersion(name);
+    ExchangeApp cached = version == null ? null : AppDetailsCache.getInstance().get(name, version);
+    if (cached != null) {
+      showAppDetails(cached);
+      return;
+    }
+    man.getAppDetails(name, new ServiceResponseListener<GetAppDetailsResponse>() {
         @Override
         public void onSuccess(GetAppDetailsResponse message) {
           final ExchangeApp app = message.getApp();
@@ -322,24 +469,13 @@ public class ExchangeActivity extends RosAppActivity {
                 }});
             return;
           }
-          Bitmap bitmap = null;
-          if( app.getIcon().getData().array().length > 0 && app.getIcon().getFormat() != null &&
-              (app.getIcon().getFormat().equals("jpeg") || app.getIcon().getFormat().equals("png")) ) {
-            bitmap = BitmapFactory.decodeByteArray( app.getIcon().getData().array(), 0, app.getIcon().getData().array().length );
+          if (version != null) {
+            AppDetailsCache.getInstance().put(name, version, app);
           }
-          final Bitmap iconBitmap = bitmap;
-          Log.i("RosAndroid", "GetInstallationState.Response: " + availableAppsCache.size() + " apps");
           runOnUiThread(new Runnable() {
               @Override
               public void run() {
-                ImageView iv = (ImageView)ExchangeActivity.this.findViewById(R.id.exchange_icon);
-                if( iconBitmap != null ) {
-                  iv.setImageBitmap(iconBitmap);
-                } else {
-                  iv.setImageResource(R.drawable.icon);
-                }
-                exchangeAppDetailTextView.setText(app.getDescription().toString());
-                update(availableAppsCache, installedAppsCache);
+                showAppDetails(app);
               }});
         }
         @Override
@@ -359,121 +495,81 @@ public class ExchangeActivity extends RosAppActivity {
         }});
   }
 
-  private void update(ArrayList<ExchangeApp> availableApps, ArrayList<ExchangeApp> installedApps) {
-    int nInstalledApps = 0;
-    int nAvailableApps = 0;
-
-    int i = 0;
-    for (ExchangeApp a : installedApps) {
-      if (!a.getHidden()) {
-        nInstalledApps++;
-      }
-    }
-    installed_application_list = new String[nInstalledApps];
-    installed_application_display = new String[nInstalledApps];
-    for (ExchangeApp a : installedApps) {
-      if (!a.getHidden()) {
-        installed_application_list[i] =  a.getName();
-        if (!a.getVersion().equals(a.getLatestVersion())) {
-          installed_application_display[i] = a.getDisplayName() + " (Upgradable)";
-        } else {
-          installed_application_display[i] = a.getDisplayName();
-        }
-        i = i + 1;
-      }
+  /**
+   * Must be run in UI thread.
+   */
+  private void showAppDetails(ExchangeApp app) {
+    if (!app.getName().equals(appSelected)) {
+      // The user has moved on to another app since these were requested.
+      return;
     }
+    ImageView iv = (ImageView)ExchangeActivity.this.findViewById(R.id.exchange_icon);
+    IconLoader.getInstance().load(iv, app.getName(), app.getIcon());
+    exchangeAppDetailTextView.setText(app.getDescription().toString());
+    renderSelection();
+  }
 
-    installedAppListView.setTextFilterEnabled(true);
-    
-
-    final String [] installed_application_list_array = installed_application_list;
-    final String [] installed_application_display_array = installed_application_display;
-    ArrayAdapter ad = new ArrayAdapter(this,android.R.layout.simple_list_item_1, installed_application_display_array);
-    installedAppListView.setAdapter(ad);
-    registerForContextMenu(installedAppListView);
-    registerForContextMenu(availableAppListView);
-    installedAppListView.setOnItemClickListener(new OnItemClickListener() {
-        public void onItemClick(AdapterView adapter, View view, int index, long id) {
-          appSelected = installed_application_list_array[index];
-          appSelectedDisplay = installed_application_display_array[index];
-          Log.i("ExchangeActivity", appSelected);
-          ExchangeActivity.this.runOnUiThread(new Runnable() {
-              @Override
-              public void run() {
-                update(availableAppsCache, installedAppsCache);
-                installedAppsView.setVisibility(appExchangeView.GONE);
-                appExchangeView.setVisibility(appExchangeView.GONE);
-                appDetailView.setVisibility(appDetailView.VISIBLE);
-                exchangeAppDetailTextView.setText("Loading...");
-                ((ImageView)ExchangeActivity.this.findViewById(R.id.exchange_icon)).setImageResource(R.drawable.icon);
-              }});
-          updateAppDetails();
-        }});
+  /** Version of the named app in the current lists, or null if it is not listed. */
+  private String catalogVersion(String name) {
+    ExchangeApp app = exchangeSnapshot.get(name);
+    return app == null ? null : AppDetailsCache.versionOf(app);
+  }
 
-    ////
-    i = 0;
-    for (ExchangeApp a : availableApps) {
-      if (!a.getHidden()) {
-        nAvailableApps++;
-      }
+  /**
+   * Fetch details of the first entries of both lists in the background, so
+   * opening them does not wait on the robot.  Each app is prefetched as
+   * snapshot.get() reports it, the entry catalogVersion() later looks the
+   * details up with, so an app that is both installed and available is
+   * cached under its installed version.
+   */
+  private void prefetchAppDetails(ExchangeSnapshot snapshot) {
+    final AppManagerClient man = client;
+    int count = getResources().getInteger(R.integer.details_prefetch_count);
+    if (man == null || count <= 0) {
+      return;
     }
-    available_application_list = new String[nAvailableApps];
-    available_application_display = new String[nAvailableApps];
-    for (ExchangeApp a : availableApps) {
-      if (!a.getHidden()) {
-        available_application_list[i] =  a.getName();
-        available_application_display[i] = a.getDisplayName();
-        i = i + 1;
-      }
+    LinkedHashMap<String, ExchangeApp> apps = new LinkedHashMap<String, ExchangeApp>();
+    addFirst(apps, snapshot, snapshot.getInstalledNames(), count);
+    addFirst(apps, snapshot, snapshot.getAvailableNames(), count);
+    AppDetailsCache.getInstance().prefetch(man, new ArrayList<ExchangeApp>(apps.values()));
+  }
+
+  private static void addFirst(Map<String, ExchangeApp> out, ExchangeSnapshot snapshot, String[] names, int count) {
+    for (int i = 0; i < names.length && i < count; i++) {
+      out.put(names[i], snapshot.get(names[i]));
     }
+  }
 
-    availableAppListView.setTextFilterEnabled(true);
-    
+  /**
+   * Show a new set of exchange lists.  Rebuilds both list adapters, then
+   * the selection.  Must be run in UI thread.
+   */
+  private void renderCatalog(ExchangeSnapshot snapshot) {
+    exchangeSnapshot = snapshot;
+    installed_application_list = snapshot.getInstalledNames();
+    installed_application_display = snapshot.getInstalledDisplay();
+    installedAppListView.setAdapter(new ArrayAdapter<String>(this, android.R.layout.simple_list_item_1, installed_application_display));
+    available_application_list = snapshot.getAvailableNames();
+    available_application_display = snapshot.getAvailableDisplay();
+    availableAppListView.setAdapter(new ArrayAdapter<String>(this, android.R.layout.simple_list_item_1, available_application_display));
+    adapterRebuilds += 2;
+    renderSelection();
+  }
 
-    final String [] available_application_list_array = available_application_list;
-    final String [] available_application_display_array = available_application_display;
-    ad = new ArrayAdapter(this,android.R.layout.simple_list_item_1, available_application_display_array);
-    availableAppListView.setAdapter(ad);
-    availableAppListView.setOnItemClickListener(new OnItemClickListener() {
-        public void onItemClick(AdapterView adapter, View view, int index, long id) {
-          appSelected = available_application_list_array[index];
-          appSelectedDisplay = available_application_display_array[index];
-          Log.i("ExchangeActivity", appSelected);
-          ExchangeActivity.this.runOnUiThread(new Runnable() {
-              @Override
-              public void run() {
-                update(availableAppsCache, installedAppsCache);
-                installedAppsView.setVisibility(appExchangeView.GONE);
-                appExchangeView.setVisibility(appExchangeView.GONE);
-                appDetailView.setVisibility(appDetailView.VISIBLE);
-                exchangeAppDetailTextView.setText("Loading...");
-                ((ImageView)ExchangeActivity.this.findViewById(R.id.exchange_icon)).setImageResource(R.drawable.icon);
-              }});
-          updateAppDetails();
-        }});
+  /**
+   * Update the detail pane title and buttons for the selected app, or go
+   * back to the lists if it is no longer listed.  Must be run in UI thread.
+   */
+  private void renderSelection() {
+    ExchangeSelection selection = new ExchangeSelection(exchangeSnapshot, appSelected);
 
-    availableAppsCache = availableApps;
-    installedAppsCache = installedApps;
-    
-    if (appInList(installedApps, appSelected)) {
-      //Is installed
-      exchangeAppNameView.setText(appSelectedDisplay + " (Installed)");
-      installAppButton.setVisibility(appExchangeView.GONE);
-      for (ExchangeApp a : installedApps) {
-        if (a.getName() == appSelected && !a.getVersion().equals(a.getLatestVersion())) {
-          exchangeAppNameView.setText(a.getDisplayName() + " (Installed, Upgrade Available)");
-          installAppButton.setVisibility(appExchangeView.VISIBLE);
-        }
-      }
-      uninstallAppButton.setVisibility(appDetailView.VISIBLE);
-    } else if (appInList(availableApps, appSelected)) {
-      //Is available
-      exchangeAppNameView.setText(appSelectedDisplay + " (Not Installed)");
-      installAppButton.setVisibility(appExchangeView.VISIBLE);
-      uninstallAppButton.setVisibility(appDetailView.GONE);
-    } else {
+    if (selection.state == ExchangeSelection.State.UNKNOWN) {
       appSelected = null; //Bad app!
       appSelectedDisplay = null;
+    } else {
+      exchangeAppNameView.setText(selection.label());
+      installAppButton.setVisibility(selection.canInstall() ? View.VISIBLE : View.GONE);
+      uninstallAppButton.setVisibility(selection.canUninstall() ? View.VISIBLE : View.GONE);
     }
 
     if (appSelected == null) {
@@ -488,18 +584,14 @@ public class ExchangeActivity extends RosAppActivity {
     appSelected = null;
   }
 
-  private void runUpdate(boolean remoteUpdate) {
-    appManager.listExchangeApps(remoteUpdate, new ServiceResponseListener<GetInstallationStateResponse>() {
+  private void runUpdate(final boolean remoteUpdate) {
+    client.listExchangeApps(remoteUpdate, new ServiceResponseListener<GetInstallationStateResponse>() {
         @Override
         public void onSuccess(GetInstallationStateResponse message) {
-          availableAppsCache = (ArrayList<ExchangeApp>) message.getAvailableApps();
-          installedAppsCache = (ArrayList<ExchangeApp>) message.getInstalledApps();
-          Log.i("RosAndroid", "GetInstallationState.Response: " + availableAppsCache.size() + " apps");
-          runOnUiThread(new Runnable() {
-              @Override
-              public void run() {
-                update(availableAppsCache, installedAppsCache);
-              }});
+          if (remoteUpdate) {
+            lastRemoteUpdateMillis = System.currentTimeMillis();
+          }
+          onExchangeLists(message.getAvailableApps(), message.getInstalledApps());
         }
         @Override
         public void onFailure(final RemoteException e) {
@@ -517,6 +609,53 @@ public class ExchangeActivity extends RosAppActivity {
       });
   }
 
+  /**
+   * Show the exchange lists cached for the current robot, if any, while
+   * the robot is asked for fresh ones.
+   */
+  private void loadExchangeCatalog(ConnectedNode node) {
+    exchangeCache = new ExchangeCatalogCache(new File(getCacheDir(), "exchange_catalog"), node.getTopicMessageFactory());
+    exchangeCacheKey = getCurrentRobot().getRobotId().getMasterUri();
+    ExchangeCatalogCache.Entry entry = exchangeCache.load(exchangeCacheKey);
+    if (entry == null) {
+      lastRemoteUpdateMillis = 0;
+      return;
+    }
+    lastRemoteUpdateMillis = entry.remoteUpdateMillis;
+    Log.i("RosAndroid", "showing cached exchange lists: " + entry.availableApps.size() + " apps");
+    final ExchangeSnapshot snapshot = new ExchangeSnapshot(entry.availableApps, entry.installedApps);
+    runOnUiThread(new Runnable() {
+        @Override
+        public void run() {
+          renderCatalog(snapshot);
+        }});
+  }
+
+  /**
+   * Handle new exchange lists from the robot: index them once, refresh the
+   * caches and show them.
+   */
+  private void onExchangeLists(List<ExchangeApp> availableApps, List<ExchangeApp> installedApps) {
+    Log.i("RosAndroid", "GetInstallationState.Response: " + availableApps.size() + " apps");
+    final ExchangeSnapshot snapshot = new ExchangeSnapshot(availableApps, installedApps);
+    saveExchangeCatalog(snapshot);
+    AppDetailsCache.getInstance().invalidate(availableApps, installedApps);
+    prefetchAppDetails(snapshot);
+    runOnUiThread(new Runnable() {
+        @Override
+        public void run() {
+          renderCatalog(snapshot);
+        }});
+  }
+
+  private void saveExchangeCatalog(ExchangeSnapshot snapshot) {
+    ExchangeCatalogCache cache = exchangeCache;
+    if (cache != null && exchangeCacheKey != null) {
+      cache.save(exchangeCacheKey, new ExchangeCatalogCache.Entry(snapshot.getAvailableApps(), snapshot.getInstalledApps(),
+                                                                  System.currentTimeMillis(), lastRemoteUpdateMillis));
+    }
+  }
+
   public void updateAppExchange(View view) {
     runUpdate(true);
   }
@@ -531,8 +670,13 @@ public class ExchangeActivity extends RosAppActivity {
       node = null;
       return;
     }
+    client = new RosAppManagerClient(appManager);
 
-    runUpdate(false);
+    loadExchangeCatalog(node);
+    // One request only: a remote update also returns the local lists, and
+    // two overlapping requests could answer out of order.
+    long remoteUpdateMillis = getResources().getInteger(R.integer.exchange_remote_update_seconds) * 1000L;
+    runUpdate(System.currentTimeMillis() - lastRemoteUpdateMillis >= remoteUpdateMillis);
     
     runOnUiThread(new Runnable() {
         @Override
@@ -545,15 +689,7 @@ public class ExchangeActivity extends RosAppActivity {
       appManager.addExchangeListCallback(new MessageListener<AppInstallationState>() {
           @Override
           public void onNewMessage(AppInstallationState message) {
-            availableAppsCache = (ArrayList<ExchangeApp>) message.getAvailableApps();
-            installedAppsCache = (ArrayList<ExchangeApp>) message.getInstalledApps();
-            Log.i("RosAndroid", "GetInstallationState.Response: " + availableAppsCache.size() + " apps");
-            runOnUiThread(new Runnable() {
-                @Override
-                public void run() {
-                  update(availableAppsCache, installedAppsCache);
-                }
-              });
+            onExchangeLists(message.getAvailableApps(), message.getInstalledApps());
           }
         });
     } catch (RosException e) {
@@ -564,13 +700,14 @@ public class ExchangeActivity extends RosAppActivity {
     client_sub.addMessageListener(new MessageListener<std_msgs.String>() {
             @Override
             public void onNewMessage(final std_msgs.String data) {
-              runOnUiThread(new Runnable() {
-              @Override
-              public void run() {
-                String newline = System.getProperty("line.separator");
-                addTextToTextView(newline+data.getData());  
-              }      
-            });
+              installLog.append(data.getData());
+              InstallProgressTracker tracker = installProgress;
+              if (tracker != null) {
+                InstallProgressTracker.Event event = tracker.onLine(data.getData(), SystemClock.elapsedRealtime());
+                if (event != null) {
+                  installProgressUpdates.submit(event);
+                }
+              }
           }   
         }
       );
@@ -581,21 +718,6 @@ public class ExchangeActivity extends RosAppActivity {
     super.onNodeDestroy(node);
   }
 
-  public void addTextToTextView(String message) {
-
-    dialog_text.append(message);
-
-    final ScrollView dialog_scroll = (ScrollView) dialog.findViewById(R.id.dialog_scrollview);
-    dialog_scroll.post(new Runnable()
-    { 
-        @Override
-        public void run()
-        {
-            dialog_scroll.fullScroll(View.FOCUS_DOWN);
-        }
-    });
-  }  
-
   private void safeSetStatus(final String statusMessage) {
     final TextView statusView = (TextView) findViewById(R.id.status_view);
     if (statusView != null) {
@@ -684,8 +806,20 @@ public class ExchangeActivity extends RosAppActivity {
         dialog = new Dialog(this);
         dialog.setContentView(R.layout.install_dialog);
         dialog.setTitle("Installation Messages");
-        dialog_text = (TextView) dialog.findViewById(R.id.dialog_textview);
-        dialog_text.setText("Installing...");
+        installLog.attach((TextView) dialog.findViewById(R.id.dialog_textview),
+                          (ScrollView) dialog.findViewById(R.id.dialog_scrollview), "Installing...");
+        dialog.setOnCancelListener(new DialogInterface.OnCancelListener() {
+          @Override
+          public void onCancel(DialogInterface d) {
+            cancelInstall();
+          }
+        });
+        dialog.setOnDismissListener(new DialogInterface.OnDismissListener() {
+          @Override
+          public void onDismiss(DialogInterface d) {
+            installLog.detach();
+          }
+        });
         button = (Button) dialog.findViewById(R.id.ok_button);
         button.setOnClickListener(new View.OnClickListener() {
           @Override
@@ -694,6 +828,13 @@ public class ExchangeActivity extends RosAppActivity {
           }
         });
         button.setVisibility(View.GONE);
+        Button cancel = (Button) dialog.findViewById(R.id.cancel_button);
+        cancel.setOnClickListener(new View.OnClickListener() {
+          @Override
+          public void onClick(View v) {
+            cancelInstall();
+          }
+        });
         break;
       default:
         dialog = null;
@@ -0,0 +1,172 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import app_manager.ExchangeApp;
+import org.ros.message.MessageFactory;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Per-robot copy of the exchange installation state, kept in memory for
+ * the life of the process and on disk across restarts, so the exchange
+ * lists can be shown before the robot answers.
+ */
+public class ExchangeCatalogCache {
+  private static final int FORMAT_VERSION = 1;
+  private static final String SUFFIX = ".exchange";
+  private static final HashMap<String, Entry> memory = new HashMap<String, Entry>();
+
+  private final File dir;
+  private final MessageFactory messageFactory;
+
+  /**
+   * Cached exchange lists.  remoteUpdateMillis is the last time the robot
+   * refreshed its list from the remote exchange, zero if unknown.
+   */
+  public static class Entry {
+    public final List<ExchangeApp> availableApps;
+    public final List<ExchangeApp> installedApps;
+    public final long timeMillis;
+    public final long remoteUpdateMillis;
+
+    public Entry(List<ExchangeApp> availableApps, List<ExchangeApp> installedApps,
+                 long timeMillis, long remoteUpdateMillis) {
+      this.availableApps = availableApps;
+      this.installedApps = installedApps;
+      this.timeMillis = timeMillis;
+      this.remoteUpdateMillis = remoteUpdateMillis;
+    }
+  }
+
+  public ExchangeCatalogCache(File dir, MessageFactory messageFactory) {
+    this.dir = dir;
+    this.messageFactory = messageFactory;
+  }
+
+  /** Returns the cached lists for the robot, or null if there are none. */
+  public Entry load(String masterUri) {
+    synchronized (memory) {
+      Entry entry = memory.get(masterUri);
+      if (entry != null) {
+        return entry;
+      }
+    }
+    Entry entry = loadFromDisk(masterUri);
+    if (entry != null) {
+      synchronized (memory) {
+        memory.put(masterUri, entry);
+      }
+    }
+    return entry;
+  }
+
+  public void save(String masterUri, final Entry entry) {
+    synchronized (memory) {
+      memory.put(masterUri, entry);
+    }
+    CatalogFiles.write(CatalogFiles.fileFor(dir, masterUri, SUFFIX), new CatalogFiles.Contents() {
+        @Override
+        public void writeTo(DataOutputStream out) throws IOException {
+          out.writeInt(FORMAT_VERSION);
+          out.writeLong(entry.timeMillis);
+          out.writeLong(entry.remoteUpdateMillis);
+          writeApps(out, entry.availableApps);
+          writeApps(out, entry.installedApps);
+        }});
+  }
+
+  private Entry loadFromDisk(String masterUri) {
+    File file = CatalogFiles.fileFor(dir, masterUri, SUFFIX);
+    if (!file.exists()) {
+      return null;
+    }
+    DataInputStream in = null;
+    try {
+      in = CatalogFiles.openForRead(file);
+      if (in.readInt() != FORMAT_VERSION) {
+        return null;
+      }
+      long time = in.readLong();
+      long remoteTime = in.readLong();
+      List<ExchangeApp> available = readApps(in);
+      List<ExchangeApp> installed = readApps(in);
+      return new Entry(available, installed, time, remoteTime);
+    } catch (IOException e) {
+      CatalogFiles.discard(file, e);
+      return null;
+    } catch (RuntimeException e) {
+      CatalogFiles.discard(file, e);
+      return null;
+    } finally {
+      CatalogFiles.closeQuietly(in);
+    }
+  }
+
+  private void writeApps(DataOutputStream out, List<ExchangeApp> apps) throws IOException {
+    out.writeInt(apps.size());
+    for (ExchangeApp app : apps) {
+      CatalogFiles.writeString(out, app.getName());
+      CatalogFiles.writeString(out, app.getDisplayName());
+      CatalogFiles.writeString(out, app.getVersion());
+      CatalogFiles.writeString(out, app.getLatestVersion());
+      CatalogFiles.writeString(out, app.getDescription());
+      CatalogFiles.writeIcon(out, app.getIcon());
+      out.writeBoolean(app.getHidden());
+    }
+  }
+
+  private List<ExchangeApp> readApps(DataInputStream in) throws IOException {
+    int n = CatalogFiles.readLength(in);
+    ArrayList<ExchangeApp> apps = new ArrayList<ExchangeApp>(n);
+    for (int i = 0; i < n; i++) {
+      ExchangeApp app = messageFactory.newFromType(ExchangeApp._TYPE);
+      app.setName(CatalogFiles.readString(in));
+      app.setDisplayName(CatalogFiles.readString(in));
+      app.setVersion(CatalogFiles.readString(in));
+      app.setLatestVersion(CatalogFiles.readString(in));
+      app.setDescription(CatalogFiles.readString(in));
+      app.setIcon(CatalogFiles.readIcon(in, messageFactory));
+      app.setHidden(in.readBoolean());
+      apps.add(app);
+    }
+    return apps;
+  }
+}
@@ -0,0 +1,221 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+import app_manager.Icon;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded LRU cache of decoded app icons, shared by the app grid and
+ * the exchange detail view.  Entries are keyed by app name plus a hash of
+ * the icon bytes, so a changed icon for the same app decodes again.
+ */
+public class IconCache {
+  private static final int DEFAULT_MAX_BYTES = 4 * 1024 * 1024;
+  private static IconCache instance;
+
+  private final LinkedHashMap<String, Bitmap> bitmaps;
+  private final int maxBytes;
+  private int currentBytes;
+  private int hits;
+  private int misses;
+  private int evictions;
+  private int decodes;
+  // Bytes a full-size ARGB_8888 decode would have allocated, versus what the
+  // downsampled decodes actually allocated.
+  private long fullSizeBytes;
+  private long decodedSizeBytes;
+
+  public IconCache(int maxBytes) {
+    this.maxBytes = maxBytes;
+    // Access order makes iteration start at the least recently used entry.
+    bitmaps = new LinkedHashMap<String, Bitmap>(16, 0.75f, true);
+  }
+
+  public static synchronized IconCache getInstance() {
+    if (instance == null) {
+      instance = new IconCache(DEFAULT_MAX_BYTES);
+    }
+    return instance;
+  }
+
+  /** Returns true if the icon carries image data in a format we can decode. */
+  public static boolean isDecodable(Icon icon) {
+    return icon != null && icon.getData().array().length > 0 && icon.getFormat() != null &&
+      (icon.getFormat().equals("jpeg") || icon.getFormat().equals("png"));
+  }
+
+  /**
+   * @param iconHash AppListSnapshot.iconHash() of the icon
+   * @param targetSize edge length in pixels the icon will be shown at; part
+   *   of the key because it determines how far the icon is downsampled.
+   */
+  public static String keyFor(String appName, int iconHash, int targetSize) {
+    return appName + ":" + iconHash + "@" + targetSize;
+  }
+
+  /**
+   * Decodes the icon bytes, downsampled to no smaller than targetSize on
+   * either edge, and stores the result under the given key.
+   */
+  public Bitmap decode(String key, byte[] data, int targetSize) {
+    BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inJustDecodeBounds = true;
+    BitmapFactory.decodeByteArray(data, 0, data.length, options);
+    if (options.outWidth <= 0 || options.outHeight <= 0) {
+      return null;
+    }
+    int fullWidth = options.outWidth;
+    int fullHeight = options.outHeight;
+
+    options.inJustDecodeBounds = false;
+    options.inSampleSize = sampleSizeFor(fullWidth, fullHeight, targetSize);
+    // JPEGs have no alpha channel, so 16 bits per pixel lose nothing visible.
+    // PNG icons usually rely on transparency and stay at full depth.
+    if ("image/jpeg".equals(options.outMimeType)) {
+      options.inPreferredConfig = Bitmap.Config.RGB_565;
+    } else {
+      options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+    }
+    Bitmap bitmap = BitmapFactory.decodeByteArray(data, 0, data.length, options);
+    if (bitmap != null) {
+      recordDecode(fullWidth * fullHeight * 4, sizeOf(bitmap));
+      put(key, bitmap);
+    }
+    return bitmap;
+  }
+
+  /**
+   * Largest power of two that keeps both edges at or above targetSize, which
+   * is what BitmapFactory decodes most efficiently.
+   */
+  static int sampleSizeFor(int width, int height, int targetSize) {
+    int sampleSize = 1;
+    if (targetSize <= 0) {
+      return sampleSize;
+    }
+    while (width / (sampleSize * 2) >= targetSize && height / (sampleSize * 2) >= targetSize) {
+      sampleSize *= 2;
+    }
+    return sampleSize;
+  }
+
+  private synchronized void recordDecode(int fullBytes, int decodedBytes) {
+    decodes++;
+    fullSizeBytes += fullBytes;
+    decodedSizeBytes += decodedBytes;
+  }
+
+  public synchronized Bitmap get(String key) {
+    Bitmap bitmap = bitmaps.get(key);
+    if (bitmap != null) {
+      hits++;
+    } else {
+      misses++;
+    }
+    return bitmap;
+  }
+
+  public synchronized void put(String key, Bitmap bitmap) {
+    Bitmap previous = bitmaps.put(key, bitmap);
+    if (previous != null) {
+      currentBytes -= sizeOf(previous);
+    }
+    currentBytes += sizeOf(bitmap);
+    trimToSize();
+  }
+
+  public synchronized void clear() {
+    bitmaps.clear();
+    currentBytes = 0;
+  }
+
+  private void trimToSize() {
+    Iterator<Map.Entry<String, Bitmap>> it = bitmaps.entrySet().iterator();
+    // Always keep the newest entry, even if it alone exceeds the bound.
+    while (currentBytes > maxBytes && bitmaps.size() > 1 && it.hasNext()) {
+      Map.Entry<String, Bitmap> eldest = it.next();
+      currentBytes -= sizeOf(eldest.getValue());
+      it.remove();
+      evictions++;
+    }
+  }
+
+  private static int sizeOf(Bitmap bitmap) {
+    return bitmap.getRowBytes() * bitmap.getHeight();
+  }
+
+  public synchronized int getHits() {
+    return hits;
+  }
+
+  public synchronized int getMisses() {
+    return misses;
+  }
+
+  public synchronized int getEvictions() {
+    return evictions;
+  }
+
+  public synchronized int getSizeBytes() {
+    return currentBytes;
+  }
+
+  public synchronized int getDecodes() {
+    return decodes;
+  }
+
+  public synchronized long getFullSizeBytes() {
+    return fullSizeBytes;
+  }
+
+  public synchronized long getDecodedSizeBytes() {
+    return decodedSizeBytes;
+  }
+
+  public synchronized void logStats() {
+    Log.i("IconCache", "entries: " + bitmaps.size() + " bytes: " + currentBytes + "/" + maxBytes
+          + " hits: " + hits + " misses: " + misses + " evictions: " + evictions);
+    if (decodes > 0) {
+      Log.i("IconCache", "decodes: " + decodes + " bytes per icon: " + (decodedSizeBytes / decodes)
+            + " (full size: " + (fullSizeBytes / decodes) + ")");
+    }
+  }
+}
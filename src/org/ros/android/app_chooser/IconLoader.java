@@ -0,0 +1,236 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.widget.ImageView;
+import app_manager.Icon;
+import org.ros.android.app_chooser.core.AppListSnapshot;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes app icons on a small background pool and swaps them into their
+ * ImageViews when done.  Until then the view shows the default icon.  Each
+ * view is tagged with the cache key it is waiting for, so a result that
+ * arrives after the view was rebound to another app is dropped.  When the
+ * decode queue is full, decodes for views that have since been rebound are
+ * dropped to make room; the rest wait in an overflow list, so a view that
+ * is still showing never loses its decode.
+ */
+public class IconLoader {
+  private static final int DECODE_THREADS = 2;
+  private static final int MAX_QUEUED_DECODES = 64;
+  private static IconLoader instance;
+
+  private final IconCache cache;
+  private final Handler uiHandler;
+  private final ThreadPoolExecutor executor;
+  // Both only touched on the UI thread.
+  private final Map<ImageView, DecodeTask> pending = new WeakHashMap<ImageView, DecodeTask>();
+  private final ArrayList<DecodeTask> overflow = new ArrayList<DecodeTask>();
+
+  /**
+   * Decode of one icon for one view.  Cancelled on the UI thread when the
+   * view is rebound; the decoder thread only reads the flag.
+   */
+  private class DecodeTask implements Runnable {
+    final ImageView view;
+    final String key;
+    final byte[] data;
+    final int targetSize;
+    volatile boolean cancelled;
+
+    DecodeTask(ImageView view, String key, byte[] data, int targetSize) {
+      this.view = view;
+      this.key = key;
+      this.data = data;
+      this.targetSize = targetSize;
+    }
+
+    @Override
+    public void run() {
+      if (cancelled) {
+        return;
+      }
+      final Bitmap decoded = cache.decode(key, data, targetSize);
+      uiHandler.post(new Runnable() {
+          @Override
+          public void run() {
+            finished(DecodeTask.this, decoded);
+          }});
+    }
+  }
+
+  public IconLoader(IconCache cache) {
+    this.cache = cache;
+    uiHandler = new Handler(Looper.getMainLooper());
+    executor = new ThreadPoolExecutor(DECODE_THREADS, DECODE_THREADS, 30, TimeUnit.SECONDS,
+                                      new ArrayBlockingQueue<Runnable>(MAX_QUEUED_DECODES),
+                                      new ThreadFactory() {
+                                        public Thread newThread(final Runnable r) {
+                                          Thread t = new Thread(new Runnable() {
+                                              public void run() {
+                                                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                                                r.run();
+                                              }}, "IconDecoder");
+                                          t.setDaemon(true);
+                                          return t;
+                                        }},
+                                      // Runs on the UI thread, which is the only one that submits.
+                                      new RejectedExecutionHandler() {
+                                        public void rejectedExecution(Runnable r, ThreadPoolExecutor e) {
+                                          dropCancelled(e);
+                                          if (!e.getQueue().offer(r)) {
+                                            overflow.add((DecodeTask) r);
+                                          }
+                                        }});
+    executor.allowCoreThreadTimeOut(true);
+  }
+
+  public static synchronized IconLoader getInstance() {
+    if (instance == null) {
+      instance = new IconLoader(IconCache.getInstance());
+    }
+    return instance;
+  }
+
+  /**
+   * Show the icon for appName in view.  Hashes the icon bytes; use the
+   * other form when the hash is already known.  Must be run in UI thread.
+   */
+  public void load(ImageView view, String appName, Icon icon) {
+    load(view, appName, icon, AppListSnapshot.iconHash(icon));
+  }
+
+  /**
+   * Show the icon for appName in view.  Must be run in UI thread.
+   *
+   * @param iconHash AppListSnapshot.iconHash() of icon
+   */
+  public void load(final ImageView view, String appName, Icon icon, int iconHash) {
+    if (!IconCache.isDecodable(icon)) {
+      showPlaceholder(view);
+      return;
+    }
+    final byte[] data = icon.getData().array();
+    final int targetSize = targetSizeFor(view);
+    final String key = IconCache.keyFor(appName, iconHash, targetSize);
+    DecodeTask previous = pending.remove(view);
+    if (previous != null) {
+      if (previous.key.equals(key) && !previous.cancelled) {
+        // Already on its way.
+        pending.put(view, previous);
+        return;
+      }
+      previous.cancelled = true;
+    }
+    Bitmap bitmap = cache.get(key);
+    if (bitmap != null) {
+      view.setTag(key);
+      view.setImageBitmap(bitmap);
+      return;
+    }
+    view.setImageResource(R.drawable.icon);
+    view.setTag(key);
+    DecodeTask task = new DecodeTask(view, key, data, targetSize);
+    pending.put(view, task);
+    executor.execute(task);
+  }
+
+  /** Show a finished decode, if its view still wants it.  UI thread. */
+  private void finished(DecodeTask task, Bitmap decoded) {
+    if (pending.get(task.view) == task) {
+      pending.remove(task.view);
+    }
+    if (decoded != null && !task.cancelled && task.key.equals(task.view.getTag())) {
+      task.view.setImageBitmap(decoded);
+    }
+    // A decoder is free now; move waiting decodes into the queue.
+    dropCancelled(executor);
+    while (!overflow.isEmpty() && executor.getQueue().remainingCapacity() > 0) {
+      DecodeTask next = overflow.remove(0);
+      if (!next.cancelled) {
+        executor.execute(next);
+      }
+    }
+  }
+
+  /** Remove queued decodes for views that have been rebound.  UI thread. */
+  private void dropCancelled(ThreadPoolExecutor e) {
+    for (Iterator<Runnable> i = e.getQueue().iterator(); i.hasNext();) {
+      if (((DecodeTask) i.next()).cancelled) {
+        i.remove();
+      }
+    }
+    for (Iterator<DecodeTask> i = overflow.iterator(); i.hasNext();) {
+      if (i.next().cancelled) {
+        i.remove();
+      }
+    }
+  }
+
+  /**
+   * Pixel size icons are drawn at, from the layouts.  The view's measured
+   * size is not used: it is zero until the first layout, and keying on it
+   * would decode and cache every icon twice.
+   */
+  private static int targetSizeFor(ImageView view) {
+    return view.getResources().getDimensionPixelSize(R.dimen.app_icon_size);
+  }
+
+  /**
+   * Show the default icon and drop any decode still pending for the view.
+   * Must be run in UI thread.
+   */
+  public void showPlaceholder(ImageView view) {
+    DecodeTask previous = pending.remove(view);
+    if (previous != null) {
+      previous.cancelled = true;
+    }
+    view.setTag(null);
+    view.setImageResource(R.drawable.icon);
+  }
+}
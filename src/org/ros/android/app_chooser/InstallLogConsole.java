@@ -0,0 +1,164 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import android.os.Handler;
+import android.view.View;
+import android.widget.ScrollView;
+import android.widget.TextView;
+
+/**
+ * Scrolling text console for install_status messages.  Keeps only the last
+ * maxLines lines, and redraws at most once per frame however many
+ * messages arrive in between, scrolling to the bottom once per redraw.
+ * Lines that arrive while no view is attached are dropped.
+ */
+public class InstallLogConsole {
+  private static final long FRAME_MILLIS = 16;
+
+  private final Handler handler;
+  private final String[] lines;
+  private int first;
+  private int count;
+  private int dropped;
+  private boolean flushScheduled;
+  private TextView textView;
+  private ScrollView scrollView;
+
+  private final Runnable flush = new Runnable() {
+      @Override
+      public void run() {
+        String text;
+        TextView tv;
+        final ScrollView sv;
+        synchronized (InstallLogConsole.this) {
+          flushScheduled = false;
+          tv = textView;
+          sv = scrollView;
+          if (tv == null) {
+            return;
+          }
+          text = join();
+        }
+        tv.setText(text);
+        if (sv != null) {
+          // Scroll after the new text has been laid out.
+          sv.post(new Runnable() {
+              @Override
+              public void run() {
+                sv.fullScroll(View.FOCUS_DOWN);
+              }});
+        }
+      }};
+
+  public InstallLogConsole(Handler handler, int maxLines) {
+    this.handler = handler;
+    lines = new String[Math.max(1, maxLines)];
+  }
+
+  /**
+   * Start showing lines in textView, beginning with firstLine.  Must be
+   * run in UI thread.
+   */
+  public synchronized void attach(TextView textView, ScrollView scrollView, String firstLine) {
+    this.textView = textView;
+    this.scrollView = scrollView;
+    first = 0;
+    count = 0;
+    for (String line : linesOf(firstLine)) {
+      addLine(line);
+    }
+    textView.setText(join());
+  }
+
+  /** Stop showing lines; later ones are dropped until the next attach. */
+  public synchronized void detach() {
+    textView = null;
+    scrollView = null;
+    handler.removeCallbacks(flush);
+    flushScheduled = false;
+  }
+
+  /**
+   * Add a message to the console.  A message of several lines counts as
+   * that many lines against maxLines.  May be called from any thread.
+   */
+  public synchronized void append(String message) {
+    String[] split = linesOf(message);
+    if (textView == null) {
+      dropped += split.length;
+      return;
+    }
+    for (String line : split) {
+      addLine(line);
+    }
+    if (!flushScheduled) {
+      flushScheduled = true;
+      handler.postDelayed(flush, FRAME_MILLIS);
+    }
+  }
+
+  /** The lines of a message, without trailing empty lines. */
+  private static String[] linesOf(String message) {
+    return message.split("\r?\n");
+  }
+
+  private void addLine(String line) {
+    if (count < lines.length) {
+      lines[(first + count) % lines.length] = line;
+      count++;
+    } else {
+      // Full: overwrite the oldest line.
+      lines[first] = line;
+      first = (first + 1) % lines.length;
+    }
+  }
+
+  private String join() {
+    StringBuilder sb = new StringBuilder();
+    String newline = System.getProperty("line.separator");
+    for (int i = 0; i < count; i++) {
+      if (i > 0) {
+        sb.append(newline);
+      }
+      sb.append(lines[(first + i) % lines.length]);
+    }
+    return sb.toString();
+  }
+
+  /** Number of lines dropped because no view was attached. */
+  public synchronized int getDropped() {
+    return dropped;
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns the install_status text of one installation into structured
+ * progress: the current phase, the package being worked on, and a
+ * percentage and ETA when they can be worked out.  Also keeps timing for
+ * finished installs, per robot, for the life of the process.
+ */
+public class InstallProgressTracker {
+  public enum Phase { STARTING, RESOLVING, DOWNLOADING, UNPACKING, CONFIGURING, BUILDING, DONE }
+
+  /** One progress update.  percent and etaMillis are -1 when unknown. */
+  public static class Event {
+    public final Phase phase;
+    public final String packageName;
+    public final int percent;
+    public final long etaMillis;
+
+    Event(Phase phase, String packageName, int percent, long etaMillis) {
+      this.phase = phase;
+      this.packageName = packageName;
+      this.percent = percent;
+      this.etaMillis = etaMillis;
+    }
+  }
+
+  /** Timing of one finished install. */
+  public static class Timing {
+    public final String robot;
+    public final String appName;
+    public final long durationMillis;
+    public final boolean success;
+
+    Timing(String robot, String appName, long durationMillis, boolean success) {
+      this.robot = robot;
+      this.appName = appName;
+      this.durationMillis = durationMillis;
+      this.success = success;
+    }
+
+    @Override
+    public String toString() {
+      return appName + " on " + robot + ": " + durationMillis + " ms" + (success ? "" : " (failed)");
+    }
+  }
+
+  private static final int MAX_TIMINGS = 50;
+  private static final ArrayList<Timing> timings = new ArrayList<Timing>();
+
+  // "[ 45%]" from make/rosmake, "45%" from downloads.
+  private static final Pattern PERCENT = Pattern.compile("(\\d{1,3})\\s*%");
+  // apt summary, e.g. "2 upgraded, 5 newly installed, 0 to remove and 3 not upgraded."
+  private static final Pattern APT_SUMMARY = Pattern.compile("(\\d+) upgraded, (\\d+) newly installed");
+  private static final Pattern APT_GET = Pattern.compile("^Get:\\d+\\s+\\S+\\s+\\S+\\s+\\S+\\s+(\\S+)");
+  private static final Pattern APT_UNPACK = Pattern.compile("^Unpacking (?:replacement )?(\\S+)");
+  private static final Pattern APT_SETUP = Pattern.compile("^Setting up (\\S+)");
+
+  private final String robot;
+  private final String appName;
+  private final long startMillis;
+  private Phase phase = Phase.STARTING;
+  private String packageName;
+  private int percent = -1;
+  // Where and when the current run of percentages began.  Percentages are
+  // local to a phase, so the ETA extrapolates from here, not from startMillis.
+  private int sequenceStartPercent;
+  private long sequenceStartMillis;
+  private int totalPackages;
+  private int packagesConfigured;
+
+  public InstallProgressTracker(String robot, String appName, long startMillis) {
+    this.robot = robot;
+    this.appName = appName;
+    this.startMillis = startMillis;
+  }
+
+  /**
+   * Feed one install_status line.  Returns the progress after the line, or
+   * null if the line told us nothing new.
+   */
+  public synchronized Event onLine(String line, long nowMillis) {
+    line = line.trim();
+    Phase newPhase = phase;
+    String newPackage = packageName;
+    int newPercent = percent;
+    Matcher m;
+
+    if ((m = APT_SUMMARY.matcher(line)).find()) {
+      totalPackages = Integer.parseInt(m.group(1)) + Integer.parseInt(m.group(2));
+      newPhase = Phase.RESOLVING;
+    } else if ((m = APT_GET.matcher(line)).find()) {
+      newPhase = Phase.DOWNLOADING;
+      newPackage = m.group(1);
+    } else if ((m = APT_UNPACK.matcher(line)).find()) {
+      newPhase = Phase.UNPACKING;
+      newPackage = m.group(1);
+    } else if ((m = APT_SETUP.matcher(line)).find()) {
+      newPhase = Phase.CONFIGURING;
+      newPackage = m.group(1);
+      packagesConfigured++;
+      if (totalPackages > 0) {
+        newPercent = Math.min(100, packagesConfigured * 100 / totalPackages);
+      }
+    } else if (line.startsWith("Reading package lists") || line.startsWith("Building dependency tree")
+               || line.contains("rosdep")) {
+      newPhase = Phase.RESOLVING;
+    } else if (line.contains("rosmake") || line.contains("Built target") || line.startsWith("[")) {
+      newPhase = Phase.BUILDING;
+    }
+    if (newPhase != phase && newPercent == percent) {
+      // Percentages from one phase say nothing about the next.
+      newPercent = -1;
+    }
+    if ((m = PERCENT.matcher(line)).find()) {
+      int p = Integer.parseInt(m.group(1));
+      if (p <= 100) {
+        newPercent = p;
+      }
+    }
+
+    if (newPhase == phase && newPercent == percent
+        && (newPackage == null ? packageName == null : newPackage.equals(packageName))) {
+      return null;
+    }
+    if (newPercent >= 0 && (percent < 0 || newPercent < percent || newPhase != phase)) {
+      sequenceStartPercent = newPercent;
+      sequenceStartMillis = nowMillis;
+    }
+    phase = newPhase;
+    packageName = newPackage;
+    percent = newPercent;
+    return current(nowMillis);
+  }
+
+  private Event current(long nowMillis) {
+    long eta = -1;
+    if (percent > sequenceStartPercent && percent < 100) {
+      long elapsed = nowMillis - sequenceStartMillis;
+      eta = elapsed * (100 - percent) / (percent - sequenceStartPercent);
+    }
+    return new Event(phase, packageName, percent, eta);
+  }
+
+  /** Record the end of the install and return its timing. */
+  public Timing finish(boolean success, long nowMillis) {
+    Timing timing = new Timing(robot, appName, nowMillis - startMillis, success);
+    synchronized (this) {
+      phase = Phase.DONE;
+    }
+    synchronized (timings) {
+      timings.add(timing);
+      if (timings.size() > MAX_TIMINGS) {
+        timings.remove(0);
+      }
+    }
+    return timing;
+  }
+
+  /** Timings of the most recent finished installs, oldest first, for the dev menu. */
+  public static List<Timing> getTimings() {
+    synchronized (timings) {
+      return new ArrayList<Timing>(timings);
+    }
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import android.os.SystemClock;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Timeline of one app launch, from the tap on its grid cell until the
+ * client activity is started, as a list of named spans.  The most recent
+ * traces are kept in memory for the life of the process and can be
+ * exported as JSON.  The trace is handed along the launch path to each
+ * step that adds a span; spans may be begun and ended on any thread.
+ */
+public class LaunchTrace {
+  /** One step of a launch.  Times are relative to the start of the trace. */
+  public class Span {
+    public final String name;
+    public final long startMillis;
+    private long endMillis = -1;
+    private String status;
+
+    Span(String name, long startMillis) {
+      this.name = name;
+      this.startMillis = startMillis;
+    }
+
+    public void end() {
+      end(null);
+    }
+
+    /** @param status short outcome, e.g. an error; null for none */
+    public void end(String status) {
+      synchronized (LaunchTrace.this) {
+        if (endMillis < 0) {
+          endMillis = now();
+          this.status = status;
+        }
+      }
+    }
+  }
+
+  private static final int MAX_TRACES = 32;
+  private static final ArrayList<LaunchTrace> traces = new ArrayList<LaunchTrace>();
+
+  public final String appName;
+  public final String robot;
+  private final long startWallMillis;
+  private final long startMillis;
+  private final List<Span> spans = new ArrayList<Span>();
+
+  private LaunchTrace(String appName, String robot) {
+    this.appName = appName;
+    this.robot = robot;
+    startWallMillis = System.currentTimeMillis();
+    startMillis = SystemClock.elapsedRealtime();
+  }
+
+  /** Start a new trace for a launch of appName and keep it. */
+  public static LaunchTrace begin(String appName, String robot) {
+    LaunchTrace trace = new LaunchTrace(appName, robot);
+    synchronized (traces) {
+      traces.add(trace);
+      if (traces.size() > MAX_TRACES) {
+        traces.remove(0);
+      }
+    }
+    return trace;
+  }
+
+  /** Begin a span in trace, which may be null when the launch is not traced. */
+  public static Span beginSpan(LaunchTrace trace, String name) {
+    return trace != null ? trace.span(name) : null;
+  }
+
+  /** End span, which may be null when the launch is not traced. */
+  public static void endSpan(Span span, String status) {
+    if (span != null) {
+      span.end(status);
+    }
+  }
+
+  public synchronized Span span(String name) {
+    Span span = new Span(name, now());
+    spans.add(span);
+    return span;
+  }
+
+  /** Record a point in time as a span that has already ended. */
+  public void mark(String name) {
+    span(name).end();
+  }
+
+  private long now() {
+    return SystemClock.elapsedRealtime() - startMillis;
+  }
+
+  public synchronized JSONObject toJson() throws JSONException {
+    JSONObject json = new JSONObject();
+    json.put("app", appName);
+    json.put("robot", robot);
+    json.put("start_time", startWallMillis);
+    JSONArray array = new JSONArray();
+    for (Span span : spans) {
+      JSONObject s = new JSONObject();
+      s.put("name", span.name);
+      s.put("start_ms", span.startMillis);
+      s.put("end_ms", span.endMillis);
+      if (span.status != null) {
+        s.put("status", span.status);
+      }
+      array.put(s);
+    }
+    json.put("spans", array);
+    return json;
+  }
+
+  /** All kept traces, oldest first, as a JSON array. */
+  public static String exportJson() throws JSONException {
+    JSONArray array = new JSONArray();
+    synchronized (traces) {
+      for (LaunchTrace trace : traces) {
+        array.put(trace.toJson());
+      }
+    }
+    return array.toString(2);
+  }
+}
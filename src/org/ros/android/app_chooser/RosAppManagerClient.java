@@ -0,0 +1,122 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import app_manager.GetAppDetailsResponse;
+import app_manager.GetInstallationStateResponse;
+import app_manager.InstallAppResponse;
+import app_manager.ListAppsResponse;
+import app_manager.StartAppResponse;
+import app_manager.StopAppResponse;
+import app_manager.UninstallAppResponse;
+import org.ros.android.app_chooser.core.AppManagerClient;
+import org.ros.android.app_chooser.core.PendingCall;
+import org.ros.node.service.ServiceResponseListener;
+import ros.android.activity.AppManager;
+
+/**
+ * AppManagerClient backed by the rosjava AppManager of the connected
+ * robot.  Every call has a deadline and is timed; list and details calls
+ * are retried, since repeating them is harmless.
+ */
+public class RosAppManagerClient implements AppManagerClient {
+  private final AppManager appManager;
+
+  public RosAppManagerClient(AppManager appManager) {
+    this.appManager = appManager;
+  }
+
+  @Override
+  public PendingCall listApps(ServiceResponseListener<ListAppsResponse> listener) {
+    return ServiceCalls.callIdempotent(ServiceLatency.LIST_APPS, new ServiceCalls.Request<ListAppsResponse>() {
+        @Override
+        public void send(ServiceResponseListener<ListAppsResponse> l) {
+          appManager.listApps(l);
+        }}, listener);
+  }
+
+  @Override
+  public PendingCall startApp(final String name, ServiceResponseListener<StartAppResponse> listener) {
+    return ServiceCalls.call(ServiceLatency.START_APP, new ServiceCalls.Request<StartAppResponse>() {
+        @Override
+        public void send(ServiceResponseListener<StartAppResponse> l) {
+          appManager.startApp(name, l);
+        }}, listener);
+  }
+
+  @Override
+  public PendingCall stopApp(final String name, ServiceResponseListener<StopAppResponse> listener) {
+    return ServiceCalls.call(ServiceLatency.STOP_APP, new ServiceCalls.Request<StopAppResponse>() {
+        @Override
+        public void send(ServiceResponseListener<StopAppResponse> l) {
+          appManager.stopApp(name, l);
+        }}, listener);
+  }
+
+  @Override
+  public PendingCall listExchangeApps(final boolean remoteUpdate, ServiceResponseListener<GetInstallationStateResponse> listener) {
+    return ServiceCalls.callIdempotent(ServiceLatency.LIST_EXCHANGE_APPS, new ServiceCalls.Request<GetInstallationStateResponse>() {
+        @Override
+        public void send(ServiceResponseListener<GetInstallationStateResponse> l) {
+          appManager.listExchangeApps(remoteUpdate, l);
+        }}, listener);
+  }
+
+  @Override
+  public PendingCall getAppDetails(final String name, ServiceResponseListener<GetAppDetailsResponse> listener) {
+    return ServiceCalls.callIdempotent(ServiceLatency.GET_APP_DETAILS, new ServiceCalls.Request<GetAppDetailsResponse>() {
+        @Override
+        public void send(ServiceResponseListener<GetAppDetailsResponse> l) {
+          appManager.getAppDetails(name, l);
+        }}, listener);
+  }
+
+  @Override
+  public PendingCall installApp(final String name, ServiceResponseListener<InstallAppResponse> listener) {
+    return ServiceCalls.call(ServiceLatency.INSTALL_APP, new ServiceCalls.Request<InstallAppResponse>() {
+        @Override
+        public void send(ServiceResponseListener<InstallAppResponse> l) {
+          appManager.installApp(name, l);
+        }}, listener);
+  }
+
+  @Override
+  public PendingCall uninstallApp(final String name, ServiceResponseListener<UninstallAppResponse> listener) {
+    return ServiceCalls.call(ServiceLatency.UNINSTALL_APP, new ServiceCalls.Request<UninstallAppResponse>() {
+        @Override
+        public void send(ServiceResponseListener<UninstallAppResponse> l) {
+          appManager.uninstallApp(name, l);
+        }}, listener);
+  }
+}
@@ -0,0 +1,233 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import android.content.res.Resources;
+import android.util.Log;
+import org.ros.android.app_chooser.core.CallCancelledException;
+import org.ros.android.app_chooser.core.PendingCall;
+import org.ros.exception.RemoteException;
+import org.ros.internal.node.response.StatusCode;
+import org.ros.node.service.ServiceResponseListener;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends app manager service calls with a deadline.  A call that gets no
+ * response in time fails with a RemoteException, so progress dialogs
+ * waiting on it are taken down.  Idempotent calls are retried with
+ * jittered exponential backoff before they fail.  Every attempt is timed
+ * by ServiceLatency.
+ */
+public class ServiceCalls {
+  private static final long DEFAULT_TIMEOUT_MILLIS = 30000;
+  private static final long BACKOFF_BASE_MILLIS = 500;
+  private static final long BACKOFF_MAX_MILLIS = 8000;
+
+  private static final Map<String, Long> timeouts = new HashMap<String, Long>();
+  private static int maxAttempts = 3;
+  private static final Random random = new Random();
+  private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "ServiceCalls");
+        thread.setDaemon(true);
+        return thread;
+      }});
+
+  /** Sends one attempt of a call to the app manager. */
+  public interface Request<T> {
+    void send(ServiceResponseListener<T> listener);
+  }
+
+  /** Read timeouts and the retry limit from the app's configuration. */
+  public static void configure(Resources resources) {
+    long list = resources.getInteger(R.integer.list_timeout_seconds) * 1000L;
+    long startStop = resources.getInteger(R.integer.start_stop_timeout_seconds) * 1000L;
+    setTimeoutMillis(ServiceLatency.LIST_APPS, list);
+    setTimeoutMillis(ServiceLatency.GET_APP_DETAILS, list);
+    setTimeoutMillis(ServiceLatency.LIST_EXCHANGE_APPS, resources.getInteger(R.integer.exchange_list_timeout_seconds) * 1000L);
+    setTimeoutMillis(ServiceLatency.START_APP, startStop);
+    setTimeoutMillis(ServiceLatency.STOP_APP, startStop);
+    setTimeoutMillis(ServiceLatency.INSTALL_APP, resources.getInteger(R.integer.install_timeout_seconds) * 1000L);
+    setTimeoutMillis(ServiceLatency.UNINSTALL_APP, resources.getInteger(R.integer.install_timeout_seconds) * 1000L);
+    setMaxAttempts(resources.getInteger(R.integer.service_max_attempts));
+  }
+
+  public static synchronized void setTimeoutMillis(String operation, long millis) {
+    timeouts.put(operation, millis);
+  }
+
+  public static synchronized long getTimeoutMillis(String operation) {
+    Long millis = timeouts.get(operation);
+    return millis != null ? millis : DEFAULT_TIMEOUT_MILLIS;
+  }
+
+  /** Attempts made for an idempotent call, including the first. */
+  public static synchronized void setMaxAttempts(int attempts) {
+    maxAttempts = Math.max(attempts, 1);
+  }
+
+  private static synchronized int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  /** Send a call once, failing it if no response arrives in time. */
+  public static <T> PendingCall call(String operation, Request<T> request, ServiceResponseListener<T> listener) {
+    return new TimedCall<T>(operation, request, listener, 1).send();
+  }
+
+  /**
+   * Send a call that is safe to repeat, retrying on failure or timeout
+   * until it succeeds or runs out of attempts.
+   */
+  public static <T> PendingCall callIdempotent(String operation, Request<T> request, ServiceResponseListener<T> listener) {
+    return new TimedCall<T>(operation, request, listener, getMaxAttempts()).send();
+  }
+
+  /**
+   * Delay before retry number attempt: exponential in the attempt, capped,
+   * and drawn from the upper half of that range so that clients which
+   * failed together do not retry together.
+   */
+  static long backoffMillis(int attempt) {
+    long delay = BACKOFF_BASE_MILLIS << Math.min(attempt - 1, 16);
+    delay = Math.min(delay, BACKOFF_MAX_MILLIS);
+    synchronized (random) {
+      return delay / 2 + (long) (random.nextDouble() * (delay / 2));
+    }
+  }
+
+  private static class TimedCall<T> implements PendingCall {
+    private final String operation;
+    private final Request<T> request;
+    private final ServiceResponseListener<T> listener;
+    private final int attempts;
+    private int attempt;
+    private boolean done;
+    private ScheduledFuture<?> pending;
+
+    TimedCall(String operation, Request<T> request, ServiceResponseListener<T> listener, int attempts) {
+      this.operation = operation;
+      this.request = request;
+      this.listener = listener;
+      this.attempts = attempts;
+    }
+
+    PendingCall send() {
+      final ServiceLatency.Attempt<T> timed;
+      synchronized (this) {
+        if (done) {
+          return this;
+        }
+        final int current = ++attempt;
+        timed = ServiceLatency.getInstance().wrap(operation, new ServiceResponseListener<T>() {
+          @Override
+          public void onSuccess(T message) {
+            succeeded(message);
+          }
+          @Override
+          public void onFailure(RemoteException e) {
+            failed(current, e);
+          }
+        });
+        pending = timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+              timed.timedOut();
+              failed(current, new RemoteException(StatusCode.ERROR, operation + " timed out after "
+                                                  + getTimeoutMillis(operation) + " ms"));
+            }}, getTimeoutMillis(operation), TimeUnit.MILLISECONDS);
+      }
+      request.send(timed);
+      return this;
+    }
+
+    // A late response to an earlier attempt is as good as one to the
+    // current attempt, since only idempotent calls are retried.
+    private void succeeded(T message) {
+      synchronized (this) {
+        if (done) {
+          return;
+        }
+        done = true;
+        pending.cancel(false);
+      }
+      listener.onSuccess(message);
+    }
+
+    private void failed(int failedAttempt, RemoteException e) {
+      synchronized (this) {
+        if (done || failedAttempt != attempt) {
+          return;
+        }
+        pending.cancel(false);
+        if (attempt < attempts) {
+          long delay = backoffMillis(attempt);
+          Log.i("ServiceCalls", operation + " attempt " + attempt + " failed, retrying in " + delay + " ms: " + e.getMessage());
+          pending = timer.schedule(new Runnable() {
+              @Override
+              public void run() {
+                send();
+              }}, delay, TimeUnit.MILLISECONDS);
+          return;
+        }
+        done = true;
+      }
+      listener.onFailure(e);
+    }
+
+    @Override
+    public void cancel() {
+      synchronized (this) {
+        if (done) {
+          return;
+        }
+        done = true;
+        if (pending != null) {
+          pending.cancel(false);
+        }
+      }
+      Log.i("ServiceCalls", operation + " cancelled after " + attempt + " attempts");
+      listener.onFailure(new CallCancelledException(operation + " cancelled"));
+    }
+  }
+}
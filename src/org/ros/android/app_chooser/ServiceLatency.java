@@ -0,0 +1,205 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import android.os.SystemClock;
+import android.util.Log;
+import org.ros.exception.RemoteException;
+import org.ros.node.service.ServiceResponseListener;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Latency of app manager service calls as seen from the device, kept per
+ * operation: the most recent round trips for percentiles, plus counts of
+ * calls, errors and timeouts since the process started.  Every call is
+ * counted once, when it completes; errors and timeouts are subsets of the
+ * calls, and only successful calls are timed.
+ */
+public class ServiceLatency {
+  public static final String LIST_APPS = "listApps";
+  public static final String START_APP = "startApp";
+  public static final String STOP_APP = "stopApp";
+  public static final String LIST_EXCHANGE_APPS = "listExchangeApps";
+  public static final String GET_APP_DETAILS = "getAppDetails";
+  public static final String INSTALL_APP = "installApp";
+  public static final String UNINSTALL_APP = "uninstallApp";
+
+  private static final int MAX_SAMPLES = 256;
+  private static ServiceLatency instance;
+
+  private final Map<String, Histogram> histograms = new TreeMap<String, Histogram>();
+
+  /** Round trip times of one operation. */
+  private static class Histogram {
+    // Ring of the most recent round trips, in milliseconds.
+    final long[] samples = new long[MAX_SAMPLES];
+    int sampled;
+    int calls;
+    int errors;
+    int timeouts;
+
+    void add(long millis) {
+      samples[sampled % MAX_SAMPLES] = millis;
+      sampled++;
+      calls++;
+    }
+
+    /** Nearest-rank percentile over the retained samples, or -1 if none. */
+    long percentile(long[] sorted, int percent) {
+      if (sorted.length == 0) {
+        return -1;
+      }
+      int rank = (sorted.length * percent + 99) / 100;
+      return sorted[Math.max(rank, 1) - 1];
+    }
+
+    String summary() {
+      long[] sorted = Arrays.copyOf(samples, Math.min(sampled, MAX_SAMPLES));
+      Arrays.sort(sorted);
+      return "calls: " + calls + " errors: " + errors + " timeouts: " + timeouts
+        + " p50: " + percentile(sorted, 50) + " ms p95: " + percentile(sorted, 95)
+        + " ms p99: " + percentile(sorted, 99) + " ms";
+    }
+  }
+
+  public static synchronized ServiceLatency getInstance() {
+    if (instance == null) {
+      instance = new ServiceLatency();
+    }
+    return instance;
+  }
+
+  /**
+   * One attempt at an operation, timed from its creation.  It completes
+   * once: with its response, or with timedOut() if the caller gives up on
+   * it first, in which case a response arriving later is passed on but not
+   * recorded.
+   */
+  public class Attempt<T> implements ServiceResponseListener<T> {
+    private final String operation;
+    private final ServiceResponseListener<T> listener;
+    private final long startMillis = SystemClock.elapsedRealtime();
+    private boolean completed;
+
+    Attempt(String operation, ServiceResponseListener<T> listener) {
+      this.operation = operation;
+      this.listener = listener;
+    }
+
+    @Override
+    public void onSuccess(T message) {
+      if (complete()) {
+        record(operation, SystemClock.elapsedRealtime() - startMillis);
+      }
+      listener.onSuccess(message);
+    }
+
+    @Override
+    public void onFailure(RemoteException e) {
+      if (complete()) {
+        recordError(operation);
+      }
+      listener.onFailure(e);
+    }
+
+    /** Count the attempt as timed out. */
+    public void timedOut() {
+      if (complete()) {
+        recordTimeout(operation);
+      }
+    }
+
+    private synchronized boolean complete() {
+      if (completed) {
+        return false;
+      }
+      completed = true;
+      return true;
+    }
+  }
+
+  /**
+   * Wrap listener so the time from now until its response is recorded
+   * under operation.  Failures are counted as errors and not timed.
+   */
+  public <T> Attempt<T> wrap(String operation, ServiceResponseListener<T> listener) {
+    return new Attempt<T>(operation, listener);
+  }
+
+  public synchronized void record(String operation, long millis) {
+    histogram(operation).add(millis);
+  }
+
+  public synchronized void recordError(String operation) {
+    Histogram histogram = histogram(operation);
+    histogram.calls++;
+    histogram.errors++;
+  }
+
+  public synchronized void recordTimeout(String operation) {
+    Histogram histogram = histogram(operation);
+    histogram.calls++;
+    histogram.timeouts++;
+  }
+
+  private Histogram histogram(String operation) {
+    Histogram histogram = histograms.get(operation);
+    if (histogram == null) {
+      histogram = new Histogram();
+      histograms.put(operation, histogram);
+    }
+    return histogram;
+  }
+
+  /** One line per operation, in operation name order. */
+  public synchronized String report() {
+    StringBuilder report = new StringBuilder();
+    for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+      if (report.length() > 0) {
+        report.append("\n");
+      }
+      report.append(entry.getKey()).append(": ").append(entry.getValue().summary());
+    }
+    return report.length() > 0 ? report.toString() : "No service calls yet.";
+  }
+
+  public void logStats() {
+    for (String line : report().split("\n")) {
+      Log.i("ServiceLatency", line);
+    }
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser;
+
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Collapses bursts of updates into at most one render per interval.  Only
+ * the most recent value is kept; anything submitted while a render is
+ * pending replaces the value that render will see.
+ */
+public class UpdateCoalescer<T> {
+  public interface Renderer<T> {
+    /** Called on the handler's thread with the latest submitted value. */
+    void render(T value);
+  }
+
+  public static final long DEFAULT_INTERVAL_MILLIS = 200;
+
+  private final String name;
+  private final Handler handler;
+  private final Renderer<T> renderer;
+  private long intervalMillis;
+  private T pending;
+  private boolean scheduled;
+  private long lastRenderTime;
+  private int received;
+  private int rendered;
+
+  private final Runnable flush = new Runnable() {
+      @Override
+      public void run() {
+        T value;
+        synchronized (UpdateCoalescer.this) {
+          value = pending;
+          pending = null;
+          scheduled = false;
+          lastRenderTime = SystemClock.uptimeMillis();
+          rendered++;
+          Log.i("UpdateCoalescer", name + ": " + received + " updates received, " + rendered + " rendered");
+        }
+        renderer.render(value);
+      }};
+
+  public UpdateCoalescer(String name, Handler handler, long intervalMillis, Renderer<T> renderer) {
+    this.name = name;
+    this.handler = handler;
+    this.intervalMillis = intervalMillis;
+    this.renderer = renderer;
+  }
+
+  /**
+   * Queue value for rendering.  May be called from any thread.  The first
+   * update after a quiet period renders on the next pass of the handler;
+   * later ones wait until the interval since the last render has passed.
+   */
+  public synchronized void submit(T value) {
+    received++;
+    pending = value;
+    if (scheduled) {
+      return;
+    }
+    scheduled = true;
+    long wait = lastRenderTime + intervalMillis - SystemClock.uptimeMillis();
+    if (wait > 0) {
+      handler.postDelayed(flush, wait);
+    } else {
+      handler.post(flush);
+    }
+  }
+
+  /** Drop any pending update. */
+  public synchronized void cancel() {
+    handler.removeCallbacks(flush);
+    pending = null;
+    scheduled = false;
+  }
+
+  public synchronized void setIntervalMillis(long intervalMillis) {
+    this.intervalMillis = intervalMillis;
+  }
+
+  public synchronized int getReceived() {
+    return received;
+  }
+
+  public synchronized int getRendered() {
+    return rendered;
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.ros.android.app_chooser.core;
+
+import app_manager.App;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The chooser's view of one robot's apps: the latest filtered app list
+ * and when it was received, and the decisions taken on it.  Updated from
+ * ListApps responses, AppList messages and the on-disk cache, possibly on
+ * different threads; readers always see one whole snapshot.
+ */
+public class AppCatalog {
+  private volatile AppListSnapshot snapshot;
+  private volatile long timeMillis;
+
+  public AppCatalog() {
+    clear();
+  }
+
+  /** Forget the app list, e.g. when connecting to another robot. */
+  public void clear() {
+    snapshot = new AppListSnapshot(new ArrayList<App>(), new ArrayList<App>());
+    timeMillis = 0;
+  }
+
+  /**
+   * Take a new app list as reported by the app manager.
+   *
+   * @return the filtered snapshot now current
+   */
+  public AppListSnapshot update(List<App> availableApps, List<App> runningApps, long timeMillis) {
+    AppListSnapshot filtered = AppListFilter.filter(availableApps, runningApps);
+    snapshot = filtered;
+    this.timeMillis = timeMillis;
+    return filtered;
+  }
+
+  /**
+   * Take an app list restored from the on-disk cache.  Only the available
+   * apps are kept: the cached running apps may have been stopped or
+   * replaced since, so until the app manager reports them nothing counts
+   * as running.
+   *
+   * @return the filtered snapshot now current
+   */
+  public AppListSnapshot restore(List<App> availableApps, long timeMillis) {
+    return update(availableApps, new ArrayList<App>(), timeMillis);
+  }
+
+  public AppListSnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  /** When the current app list was received; 0 if there is none. */
+  public long getTimeMillis() {
+    return timeMillis;
+  }
+
+  public boolean isRunning(App app) {
+    return snapshot.isRunning(app);
+  }
+
+  public boolean hasRunningApps() {
+    return !snapshot.getRunningIndex().isEmpty();
+  }
+
+  /**
+   * True if app can only be started after the running apps are stopped,
+   * which is the case when the robot runs one app at a time and another
+   * one is running.
+   */
+  public boolean mustStopOthersFirst(App app, boolean singleApp) {
+    AppListSnapshot current = snapshot;
+    return singleApp && !current.isRunning(app) && !current.getRunningIndex().isEmpty();
+  }
+}
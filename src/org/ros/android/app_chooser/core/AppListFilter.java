@@ -0,0 +1,77 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser.core;
+
+import app_manager.App;
+import app_manager.ClientApp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reduces the app lists reported by the app manager to what the chooser
+ * shows: apps with an android client, plus apps with no client at all.
+ * Apps that only have clients for other platforms are dropped.
+ */
+public class AppListFilter {
+  static private final String CLIENT_TYPE = "android";
+
+  /**
+   * Filter availableApps in a single pass and wrap the result, together
+   * with runningApps, in a new snapshot.  The input lists are not modified.
+   */
+  static public AppListSnapshot filter(List<App> availableApps, List<App> runningApps) {
+    ArrayList<App> shown = new ArrayList<App>(availableApps.size());
+    for (int i = 0; i < availableApps.size(); i++) {
+      App app = availableApps.get(i);
+      if (isShown(app)) {
+        shown.add(app);
+      }
+    }
+    return new AppListSnapshot(shown, new ArrayList<App>(runningApps));
+  }
+
+  public static boolean isShown(App app) {
+    List<ClientApp> clients = app.getClientApps();
+    if (clients.size() == 0) {
+      return true;
+    }
+    for (int i = 0; i < clients.size(); i++) {
+      if (CLIENT_TYPE.equals(clients.get(i).getClientType())) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser.core;
+
+import app_manager.App;
+import app_manager.Icon;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The available and running apps reported by one ListApps response or
+ * AppList message, with the running apps indexed by name and a hash of
+ * each available app's icon, so the UI thread never has to look at the
+ * icon bytes to key or diff them.  Immutable; the lists handed to the
+ * constructor must not be changed afterwards.
+ */
+public class AppListSnapshot {
+  private final List<App> availableApps;
+  private final List<App> runningApps;
+  private final RunningAppIndex runningIndex;
+  private final int[] iconHashes;
+
+  public AppListSnapshot(List<App> availableApps, List<App> runningApps) {
+    this.availableApps = Collections.unmodifiableList(availableApps);
+    this.runningApps = Collections.unmodifiableList(runningApps);
+    runningIndex = new RunningAppIndex(runningApps);
+    iconHashes = new int[availableApps.size()];
+    for (int i = 0; i < iconHashes.length; i++) {
+      iconHashes[i] = iconHash(availableApps.get(i).getIcon());
+    }
+  }
+
+  /** Hash of the format and bytes of icon; 0 for no icon. */
+  public static int iconHash(Icon icon) {
+    if (icon == null || icon.getData() == null) {
+      return 0;
+    }
+    byte[] data = icon.getData().array();
+    int hash = 31 * data.length + Arrays.hashCode(data);
+    return 31 * hash + (icon.getFormat() == null ? 0 : icon.getFormat().hashCode());
+  }
+
+  public List<App> getAvailableApps() {
+    return availableApps;
+  }
+
+  public List<App> getRunningApps() {
+    return runningApps;
+  }
+
+  /** iconHash() of the icon of getAvailableApps().get(position). */
+  public int getIconHash(int position) {
+    return iconHashes[position];
+  }
+
+  public RunningAppIndex getRunningIndex() {
+    return runningIndex;
+  }
+
+  public boolean isRunning(App app) {
+    return runningIndex.isRunning(app);
+  }
+}
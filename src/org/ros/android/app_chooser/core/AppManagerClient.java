@@ -0,0 +1,68 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.ros.android.app_chooser.core;
+
+import app_manager.GetAppDetailsResponse;
+import app_manager.GetInstallationStateResponse;
+import app_manager.InstallAppResponse;
+import app_manager.ListAppsResponse;
+import app_manager.StartAppResponse;
+import app_manager.StopAppResponse;
+import app_manager.UninstallAppResponse;
+import org.ros.node.service.ServiceResponseListener;
+
+/**
+ * The app manager service calls the chooser and exchange make, with no
+ * dependency on android.  Implementations decide on deadlines and
+ * retries; every call eventually reports to its listener exactly once,
+ * unless it is cancelled.
+ */
+public interface AppManagerClient {
+  /** Stop of every running app, for stopApp. */
+  String ALL_APPS = "*";
+
+  PendingCall listApps(ServiceResponseListener<ListAppsResponse> listener);
+
+  PendingCall startApp(String name, ServiceResponseListener<StartAppResponse> listener);
+
+  PendingCall stopApp(String name, ServiceResponseListener<StopAppResponse> listener);
+
+  /** @param remoteUpdate true to refresh from the remote exchange first */
+  PendingCall listExchangeApps(boolean remoteUpdate, ServiceResponseListener<GetInstallationStateResponse> listener);
+
+  PendingCall getAppDetails(String name, ServiceResponseListener<GetAppDetailsResponse> listener);
+
+  PendingCall installApp(String name, ServiceResponseListener<InstallAppResponse> listener);
+
+  PendingCall uninstallApp(String name, ServiceResponseListener<UninstallAppResponse> listener);
+}
@@ -0,0 +1,144 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser.core;
+
+import app_manager.App;
+import app_manager.StatusCodes;
+import app_manager.StopAppResponse;
+import org.ros.exception.RemoteException;
+import org.ros.node.service.ServiceResponseListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Stops a set of running apps as one operation.  All stop requests are
+ * sent at once rather than one after another, and a single stop of "*" is
+ * sent instead when the set is every app running on the robot.  The
+ * callback hears about each completed stop and, once, about the end of the
+ * whole batch.
+ */
+public class BatchStop {
+  public interface Callback {
+    /** Called from the service thread as each stop request completes. */
+    void onProgress(int completed, int total);
+
+    /**
+     * Called once, after the last stop request completes.
+     *
+     * @param errors one message per app that failed to stop; empty when
+     *   every app stopped
+     */
+    void onFinished(List<String> errors, long elapsedMillis);
+  }
+
+  private final List<String> names;
+  private final int total;
+  private final Callback callback;
+  private final List<String> errors = new ArrayList<String>();
+  private int completed;
+  private long startNanos;
+
+  /**
+   * @param coversAllRunning true if apps holds every app currently running
+   *   on the robot, in which case the batch is sent as a single stop of "*"
+   */
+  public BatchStop(List<App> apps, boolean coversAllRunning, Callback callback) {
+    this.callback = callback;
+    if (coversAllRunning && apps.size() > 1) {
+      names = Collections.singletonList(AppManagerClient.ALL_APPS);
+    } else {
+      names = new ArrayList<String>(apps.size());
+      for (int i = 0; i < apps.size(); i++) {
+        names.add(apps.get(i).getName());
+      }
+    }
+    total = names.size();
+  }
+
+  /** Number of stop requests the batch sends. */
+  public int getRequestCount() {
+    return total;
+  }
+
+  /**
+   * Send the stop requests through client, joining any identical stop
+   * already pending in requests.
+   */
+  public void start(AppManagerClient client, InFlightRequests requests) {
+    startNanos = System.nanoTime();
+    if (total == 0) {
+      callback.onFinished(errors, 0);
+      return;
+    }
+    for (int i = 0; i < total; i++) {
+      final String name = names.get(i);
+      requests.stopApp(client, name, new ServiceResponseListener<StopAppResponse>() {
+        @Override
+        public void onSuccess(StopAppResponse message) {
+          if (message.getStopped() || message.getErrorCode() == StatusCodes.NOT_RUNNING) {
+            complete(null);
+          } else {
+            complete(name + ": " + message.getMessage());
+          }
+        }
+        @Override
+        public void onFailure(RemoteException e) {
+          complete(name + ": cannot contact robot: " + e.toString());
+        }
+      });
+    }
+  }
+
+  private void complete(String error) {
+    int done;
+    List<String> finalErrors = null;
+    long elapsedMillis = 0;
+    synchronized (this) {
+      if (error != null) {
+        errors.add(error);
+      }
+      done = ++completed;
+      if (done == total) {
+        finalErrors = new ArrayList<String>(errors);
+        elapsedMillis = (System.nanoTime() - startNanos) / 1000000;
+      }
+    }
+    callback.onProgress(done, total);
+    if (finalErrors != null) {
+      callback.onFinished(finalErrors, elapsedMillis);
+    }
+  }
+}
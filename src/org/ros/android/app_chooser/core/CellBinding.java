@@ -0,0 +1,103 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser.core;
+
+import app_manager.App;
+
+/**
+ * What one grid cell shows for an app in a snapshot: the app, its label,
+ * its icon and whether it is highlighted as running.  A recycled cell is
+ * rebound whenever the binding it holds differs from the one for its
+ * position, so no icon or highlight of the app it showed before survives.
+ */
+public class CellBinding {
+  private final String appName;
+  private final String label;
+  private final int iconHash;
+  private final boolean highlighted;
+
+  public CellBinding(String appName, String label, int iconHash, boolean highlighted) {
+    this.appName = appName;
+    this.label = label;
+    this.iconHash = iconHash;
+    this.highlighted = highlighted;
+  }
+
+  /** Binding for getAvailableApps().get(position) of snapshot. */
+  public static CellBinding of(AppListSnapshot snapshot, int position) {
+    App app = snapshot.getAvailableApps().get(position);
+    return new CellBinding(app.getName(), app.getDisplayName(), snapshot.getIconHash(position),
+        snapshot.isRunning(app));
+  }
+
+  public String getAppName() {
+    return appName;
+  }
+
+  public String getLabel() {
+    return label;
+  }
+
+  public boolean isHighlighted() {
+    return highlighted;
+  }
+
+  /**
+   * True when other shows the same icon of the same app, so a cell moving
+   * from other to this binding can keep the icon it has.
+   */
+  public boolean sameIcon(CellBinding other) {
+    return other != null && iconHash == other.iconHash && equal(appName, other.appName);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof CellBinding)) {
+      return false;
+    }
+    CellBinding other = (CellBinding) o;
+    return sameIcon(other) && highlighted == other.highlighted && equal(label, other.label);
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = appName == null ? 0 : appName.hashCode();
+    hash = 31 * hash + iconHash;
+    return 31 * hash + (highlighted ? 1 : 0);
+  }
+
+  private static boolean equal(String a, String b) {
+    return a == null ? b == null : a.equals(b);
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.ros.android.app_chooser.core;
+
+import app_manager.ExchangeApp;
+
+/**
+ * What can be done with the app selected in the exchange, worked out from
+ * one exchange snapshot.
+ */
+public class ExchangeSelection {
+  public enum State {
+    /** Installed in the latest version. */
+    INSTALLED,
+    /** Installed, and a newer version is available. */
+    UPGRADABLE,
+    /** Available and not installed. */
+    AVAILABLE,
+    /** Not in either list, e.g. removed since it was selected. */
+    UNKNOWN
+  }
+
+  public final String name;
+  public final String displayName;
+  public final State state;
+
+  public ExchangeSelection(ExchangeSnapshot snapshot, String name) {
+    this.name = name;
+    ExchangeApp app = snapshot.get(name);
+    displayName = app != null ? app.getDisplayName() : null;
+    if (snapshot.isInstalled(name)) {
+      state = snapshot.isUpgradable(name) ? State.UPGRADABLE : State.INSTALLED;
+    } else if (snapshot.isAvailable(name)) {
+      state = State.AVAILABLE;
+    } else {
+      state = State.UNKNOWN;
+    }
+  }
+
+  /** True if installing would install or upgrade the app. */
+  public boolean canInstall() {
+    return state == State.AVAILABLE || state == State.UPGRADABLE;
+  }
+
+  public boolean canUninstall() {
+    return state == State.INSTALLED || state == State.UPGRADABLE;
+  }
+
+  /** The title shown for the selection. */
+  public String label() {
+    switch (state) {
+      case UPGRADABLE:
+        return displayName + " (Installed, Upgrade Available)";
+      case INSTALLED:
+        return displayName + " (Installed)";
+      case AVAILABLE:
+        return displayName + " (Not Installed)";
+      default:
+        return displayName;
+    }
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *    
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser.core;
+
+import app_manager.ExchangeApp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * One exchange installation state, preprocessed for display: the visible
+ * entries of each list with their display strings, and an index by app
+ * name with the installed, available and upgradable flags.  Built once per
+ * GetInstallationState response or AppInstallationState message.
+ */
+public class ExchangeSnapshot {
+  private static class Entry {
+    ExchangeApp installed;
+    ExchangeApp available;
+    boolean upgradable;
+  }
+
+  private final List<ExchangeApp> availableApps;
+  private final List<ExchangeApp> installedApps;
+  private final HashMap<String, Entry> index;
+  private final String[] installedNames;
+  private final String[] installedDisplay;
+  private final String[] availableNames;
+  private final String[] availableDisplay;
+
+  public ExchangeSnapshot(List<ExchangeApp> availableApps, List<ExchangeApp> installedApps) {
+    this.availableApps = availableApps;
+    this.installedApps = installedApps;
+    index = new HashMap<String, Entry>((availableApps.size() + installedApps.size()) * 2);
+
+    ArrayList<String> names = new ArrayList<String>(installedApps.size());
+    ArrayList<String> display = new ArrayList<String>(installedApps.size());
+    for (ExchangeApp a : installedApps) {
+      Entry entry = entryFor(a.getName());
+      entry.installed = a;
+      entry.upgradable = !a.getVersion().equals(a.getLatestVersion());
+      if (!a.getHidden()) {
+        names.add(a.getName());
+        display.add(entry.upgradable ? a.getDisplayName() + " (Upgradable)" : a.getDisplayName());
+      }
+    }
+    installedNames = names.toArray(new String[names.size()]);
+    installedDisplay = display.toArray(new String[display.size()]);
+
+    names = new ArrayList<String>(availableApps.size());
+    display = new ArrayList<String>(availableApps.size());
+    for (ExchangeApp a : availableApps) {
+      entryFor(a.getName()).available = a;
+      if (!a.getHidden()) {
+        names.add(a.getName());
+        display.add(a.getDisplayName());
+      }
+    }
+    availableNames = names.toArray(new String[names.size()]);
+    availableDisplay = display.toArray(new String[display.size()]);
+  }
+
+  private Entry entryFor(String name) {
+    Entry entry = index.get(name);
+    if (entry == null) {
+      entry = new Entry();
+      index.put(name, entry);
+    }
+    return entry;
+  }
+
+  public static ExchangeSnapshot empty() {
+    return new ExchangeSnapshot(new ArrayList<ExchangeApp>(), new ArrayList<ExchangeApp>());
+  }
+
+  public List<ExchangeApp> getAvailableApps() {
+    return availableApps;
+  }
+
+  public List<ExchangeApp> getInstalledApps() {
+    return installedApps;
+  }
+
+  public boolean isInstalled(String name) {
+    Entry entry = name == null ? null : index.get(name);
+    return entry != null && entry.installed != null;
+  }
+
+  public boolean isAvailable(String name) {
+    Entry entry = name == null ? null : index.get(name);
+    return entry != null && entry.available != null;
+  }
+
+  /** True if the app is installed in a version older than the latest. */
+  public boolean isUpgradable(String name) {
+    Entry entry = name == null ? null : index.get(name);
+    return entry != null && entry.upgradable;
+  }
+
+  /**
+   * Returns the list entry for the app, preferring the installed one since
+   * it carries the installed version, or null if the app is not listed.
+   */
+  public ExchangeApp get(String name) {
+    Entry entry = name == null ? null : index.get(name);
+    if (entry == null) {
+      return null;
+    }
+    return entry.installed != null ? entry.installed : entry.available;
+  }
+
+  // The arrays below are shared, not copied; callers must not modify them.
+
+  public String[] getInstalledNames() {
+    return installedNames;
+  }
+
+  public String[] getInstalledDisplay() {
+    return installedDisplay;
+  }
+
+  public String[] getAvailableNames() {
+    return availableNames;
+  }
+
+  public String[] getAvailableDisplay() {
+    return availableDisplay;
+  }
+}
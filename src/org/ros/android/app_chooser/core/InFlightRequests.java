@@ -0,0 +1,196 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser.core;
+
+import app_manager.ListAppsResponse;
+import app_manager.StartAppResponse;
+import app_manager.StopAppResponse;
+import org.ros.exception.RemoteException;
+import org.ros.node.service.ServiceResponseListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of app manager requests still waiting for a response, keyed by
+ * client, operation and app name.  A request made while an identical one
+ * to the same client is pending joins it instead of being sent again, and
+ * the one response is handed to every caller.  Requests to different
+ * clients, e.g. before and after switching robots, never join.
+ */
+public class InFlightRequests {
+  public static final String START_APP = "startApp";
+  public static final String STOP_APP = "stopApp";
+  public static final String LIST_APPS = "listApps";
+
+  private static InFlightRequests instance;
+
+  private final Map<Key, List<ServiceResponseListener<?>>> pending =
+    new HashMap<Key, List<ServiceResponseListener<?>>>();
+  private int sent;
+  private int joined;
+
+  /** The registry shared by the app's activities. */
+  public static synchronized InFlightRequests getInstance() {
+    if (instance == null) {
+      instance = new InFlightRequests();
+    }
+    return instance;
+  }
+
+  /**
+   * Register a request.  If an identical request is pending, listener is
+   * added to it and null is returned; the caller must not send anything.
+   * Otherwise the returned listener must be passed to the service call, and
+   * it forwards the response to listener and to every request joined
+   * meanwhile.
+   *
+   * @param client the client the request will be sent through
+   * @param name app name, or null for operations not tied to an app
+   */
+  public synchronized <T> ServiceResponseListener<T> join(AppManagerClient client, String operation, String name,
+                                                         ServiceResponseListener<T> listener) {
+    final Key key = new Key(client, operation, name);
+    List<ServiceResponseListener<?>> listeners = pending.get(key);
+    if (listeners != null) {
+      listeners.add(listener);
+      joined++;
+      return null;
+    }
+    listeners = new ArrayList<ServiceResponseListener<?>>();
+    listeners.add(listener);
+    pending.put(key, listeners);
+    sent++;
+    return new ServiceResponseListener<T>() {
+      @Override
+      public void onSuccess(T message) {
+        for (ServiceResponseListener<T> l : InFlightRequests.this.<T>complete(key)) {
+          l.onSuccess(message);
+        }
+      }
+      @Override
+      public void onFailure(RemoteException e) {
+        for (ServiceResponseListener<T> l : InFlightRequests.this.<T>complete(key)) {
+          l.onFailure(e);
+        }
+      }
+    };
+  }
+
+  /** client.startApp, unless a start of the same app is pending. */
+  public void startApp(AppManagerClient client, String name, ServiceResponseListener<StartAppResponse> listener) {
+    ServiceResponseListener<StartAppResponse> l = join(client, START_APP, name, listener);
+    if (l != null) {
+      client.startApp(name, l);
+    }
+  }
+
+  /** client.stopApp, unless a stop of the same app is pending. */
+  public void stopApp(AppManagerClient client, String name, ServiceResponseListener<StopAppResponse> listener) {
+    ServiceResponseListener<StopAppResponse> l = join(client, STOP_APP, name, listener);
+    if (l != null) {
+      client.stopApp(name, l);
+    }
+  }
+
+  /** client.listApps, unless a list request is pending. */
+  public void listApps(AppManagerClient client, ServiceResponseListener<ListAppsResponse> listener) {
+    ServiceResponseListener<ListAppsResponse> l = join(client, LIST_APPS, null, listener);
+    if (l != null) {
+      client.listApps(l);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private synchronized <T> List<ServiceResponseListener<T>> complete(Key key) {
+    List<ServiceResponseListener<?>> listeners = pending.remove(key);
+    List<ServiceResponseListener<T>> result = new ArrayList<ServiceResponseListener<T>>();
+    if (listeners != null) {
+      for (ServiceResponseListener<?> l : listeners) {
+        result.add((ServiceResponseListener<T>) l);
+      }
+    }
+    return result;
+  }
+
+  public synchronized boolean isPending(AppManagerClient client, String operation, String name) {
+    return pending.containsKey(new Key(client, operation, name));
+  }
+
+  /** Number of requests actually sent to the app manager. */
+  public synchronized int getSent() {
+    return sent;
+  }
+
+  /** Number of requests that joined a pending one, i.e. round trips saved. */
+  public synchronized int getRoundTripsSaved() {
+    return joined;
+  }
+
+  /** Counters in one line, for logging. */
+  public synchronized String getStats() {
+    return "sent: " + sent + " round trips saved: " + joined + " pending: " + pending.size();
+  }
+
+  /** Identifies a request; clients are compared by identity. */
+  private static final class Key {
+    private final AppManagerClient client;
+    private final String operation;
+    private final String name;
+
+    Key(AppManagerClient client, String operation, String name) {
+      this.client = client;
+      this.operation = operation;
+      this.name = name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key k = (Key) o;
+      return client == k.client && operation.equals(k.operation)
+        && (name == null ? k.name == null : name.equals(k.name));
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(client) * 31 * 31 + operation.hashCode() * 31
+        + (name == null ? 0 : name.hashCode());
+    }
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.ros.android.app_chooser.core.TestMessages.app;
+import static org.ros.android.app_chooser.core.TestMessages.apps;
+
+import app_manager.App;
+import org.junit.Test;
+
+public class AppCatalogTest {
+  @Test
+  public void updateFiltersAndRecordsTime() {
+    AppCatalog catalog = new AppCatalog();
+    App teleop = app("teleop", "android");
+    catalog.update(apps(teleop, app("map", "web")), apps(app("teleop")), 1000);
+
+    assertEquals(1, catalog.getSnapshot().getAvailableApps().size());
+    assertEquals(1000, catalog.getTimeMillis());
+    assertTrue(catalog.isRunning(teleop));
+    assertTrue(catalog.hasRunningApps());
+  }
+
+  @Test
+  public void restoredListHasNothingRunning() {
+    // Cached running apps may be long gone; only the robot can tell.
+    AppCatalog catalog = new AppCatalog();
+    App teleop = app("teleop", "android");
+    App map = app("map", "android");
+    catalog.restore(apps(teleop, map), 500);
+
+    assertEquals(2, catalog.getSnapshot().getAvailableApps().size());
+    assertEquals(500, catalog.getTimeMillis());
+    assertFalse(catalog.isRunning(teleop));
+    assertFalse(catalog.hasRunningApps());
+    assertFalse(catalog.mustStopOthersFirst(map, true));
+  }
+
+  @Test
+  public void robotAnswerReplacesRestoredList() {
+    AppCatalog catalog = new AppCatalog();
+    App teleop = app("teleop", "android");
+    App map = app("map", "android");
+    catalog.restore(apps(teleop, map), 500);
+    catalog.update(apps(teleop, map), apps(app("teleop")), 2000);
+
+    assertEquals(2000, catalog.getTimeMillis());
+    assertTrue(catalog.isRunning(teleop));
+    assertTrue(catalog.mustStopOthersFirst(map, true));
+    assertFalse(catalog.mustStopOthersFirst(map, false));
+    assertFalse(catalog.mustStopOthersFirst(teleop, true));
+  }
+
+  @Test
+  public void clearForgetsTheList() {
+    AppCatalog catalog = new AppCatalog();
+    catalog.update(apps(app("teleop", "android")), apps(app("teleop")), 1000);
+    catalog.clear();
+
+    assertTrue(catalog.getSnapshot().getAvailableApps().isEmpty());
+    assertEquals(0, catalog.getTimeMillis());
+    assertFalse(catalog.hasRunningApps());
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser.core;
+
+import static org.ros.android.app_chooser.core.TestMessages.app;
+
+import app_manager.App;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * AppListFilter on synthetic ListApps results of 10, 100 and 1000 apps,
+ * against the copy-and-remove loop it replaced.
+ */
+public class AppListFilterBenchmark {
+  static final int[] SIZES = { 10, 100, 1000 };
+
+  /**
+   * A synthetic app list of the given size: a third android apps, a third
+   * web-only apps and a third apps with both clients or none.
+   */
+  static List<App> syntheticApps(int size) {
+    List<App> apps = new ArrayList<App>(size);
+    for (int i = 0; i < size; i++) {
+      switch (i % 6) {
+      case 0:
+      case 1:
+        apps.add(app("app" + i, "android"));
+        break;
+      case 2:
+      case 3:
+        apps.add(app("app" + i, "web"));
+        break;
+      case 4:
+        apps.add(app("app" + i, "web", "android"));
+        break;
+      default:
+        apps.add(app("app" + i));
+        break;
+      }
+    }
+    return apps;
+  }
+
+  /** Every tenth app of apps, as the running list. */
+  static List<App> runningApps(List<App> apps) {
+    List<App> running = new ArrayList<App>();
+    for (int i = 0; i < apps.size(); i += 10) {
+      running.add(apps.get(i));
+    }
+    return running;
+  }
+
+  /** The filtering loop forceUpdate used to run, kept as the baseline. */
+  static List<App> copyAndRemove(List<App> availableApps) {
+    ArrayList<App> apps = new ArrayList<App>(availableApps);
+    for (int i = 0; i < apps.size(); i++) {
+      ArrayList<String> clientTypes = new ArrayList<String>();
+      for (int j = 0; j < apps.get(i).getClientApps().size(); j++) {
+        clientTypes.add(apps.get(i).getClientApps().get(j).getClientType());
+      }
+      if (clientTypes.size() != 0 && !clientTypes.contains("android")) {
+        apps.remove(i);
+        i--;
+      }
+    }
+    return apps;
+  }
+
+  public static void main(String[] args) {
+    for (int size : SIZES) {
+      final List<App> available = syntheticApps(size);
+      final List<App> running = runningApps(available);
+      MicroBenchmark.report("AppListFilter.filter", size, new MicroBenchmark.Operation() {
+          @Override
+          public Object run() {
+            return AppListFilter.filter(available, running);
+          }});
+      MicroBenchmark.report("copy and remove (before)", size, new MicroBenchmark.Operation() {
+          @Override
+          public Object run() {
+            return copyAndRemove(available);
+          }});
+    }
+  }
+}
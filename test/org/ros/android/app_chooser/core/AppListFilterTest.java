@@ -0,0 +1,143 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.ros.android.app_chooser.core.TestMessages.app;
+import static org.ros.android.app_chooser.core.TestMessages.apps;
+import static org.ros.android.app_chooser.core.TestMessages.icon;
+
+import app_manager.App;
+import app_manager.Icon;
+import org.junit.Test;
+
+import java.util.List;
+
+public class AppListFilterTest {
+  @Test
+  public void keepsAndroidAppsAndAppsWithoutClients() {
+    App android = app("teleop", "android");
+    App none = app("battery");
+    App web = app("map", "web");
+    App both = app("pick", "web", "android");
+    AppListSnapshot snapshot = AppListFilter.filter(apps(android, none, web, both), apps());
+
+    List<App> shown = snapshot.getAvailableApps();
+    assertEquals(3, shown.size());
+    assertSame(android, shown.get(0));
+    assertSame(none, shown.get(1));
+    assertSame(both, shown.get(2));
+  }
+
+  @Test
+  public void dropsConsecutiveAppsWithoutAndroidClients() {
+    // The old AppList loop skipped the app after each one it removed.
+    App teleop = app("teleop", "android");
+    AppListSnapshot snapshot = AppListFilter.filter(
+        apps(app("map", "web"), app("pick", "web"), app("nav", "ios"), teleop), apps());
+
+    assertEquals(1, snapshot.getAvailableApps().size());
+    assertSame(teleop, snapshot.getAvailableApps().get(0));
+  }
+
+  @Test
+  public void keepsOrderOfLargeLists() {
+    List<App> available = AppListFilterBenchmark.syntheticApps(1000);
+    List<App> shown = AppListFilter.filter(available, apps()).getAvailableApps();
+
+    assertEquals(AppListFilterBenchmark.copyAndRemove(available), shown);
+    for (App app : shown) {
+      assertTrue(AppListFilter.isShown(app));
+    }
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void snapshotIsImmutable() {
+    AppListFilter.filter(apps(app("teleop", "android")), apps()).getAvailableApps().remove(0);
+  }
+
+  @Test
+  public void leavesInputListsAlone() {
+    List<App> available = apps(app("teleop", "android"), app("map", "web"));
+    List<App> running = apps(app("teleop", "android"));
+    AppListSnapshot snapshot = AppListFilter.filter(available, running);
+
+    assertEquals(2, available.size());
+    running.clear();
+    assertEquals(1, snapshot.getRunningApps().size());
+  }
+
+  @Test
+  public void runningAppsAreIndexed() {
+    App teleop = app("teleop", "android");
+    App map = app("map", "android");
+    AppListSnapshot snapshot = AppListFilter.filter(apps(teleop, map), apps(app("teleop", "android")));
+
+    assertTrue(snapshot.isRunning(teleop));
+    assertFalse(snapshot.isRunning(map));
+  }
+
+  @Test
+  public void emptyLists() {
+    AppListSnapshot snapshot = AppListFilter.filter(apps(), apps());
+    assertTrue(snapshot.getAvailableApps().isEmpty());
+    assertTrue(snapshot.getRunningIndex().isEmpty());
+  }
+
+  @Test
+  public void iconHashesFollowTheFilteredList() {
+    Icon webIcon = icon("png", 1, 2, 3);
+    Icon teleopIcon = icon("png", 4, 5, 6);
+    Icon mapIcon = icon("jpeg", 4, 5, 6);
+    AppListSnapshot snapshot = AppListFilter.filter(
+        apps(app(webIcon, "web", "web"), app(teleopIcon, "teleop", "android"), app("battery"),
+             app(mapIcon, "map", "android")), apps());
+
+    assertEquals(AppListSnapshot.iconHash(teleopIcon), snapshot.getIconHash(0));
+    // Apps without an icon hash to zero.
+    assertEquals(0, snapshot.getIconHash(1));
+    assertEquals(AppListSnapshot.iconHash(mapIcon), snapshot.getIconHash(2));
+    // The format is part of the hash.
+    assertFalse(snapshot.getIconHash(0) == snapshot.getIconHash(2));
+  }
+
+  @Test
+  public void equalIconsHashEqual() {
+    assertEquals(AppListSnapshot.iconHash(icon("png", 1, 2, 3)), AppListSnapshot.iconHash(icon("png", 1, 2, 3)));
+    assertFalse(AppListSnapshot.iconHash(icon("png", 1, 2, 3)) == AppListSnapshot.iconHash(icon("png", 1, 2)));
+  }
+}
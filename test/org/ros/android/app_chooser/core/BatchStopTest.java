@@ -0,0 +1,140 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.ros.android.app_chooser.core.FakeAppManagerClient.stopResponse;
+import static org.ros.android.app_chooser.core.TestMessages.app;
+import static org.ros.android.app_chooser.core.TestMessages.apps;
+
+import app_manager.StatusCodes;
+import app_manager.StopAppResponse;
+import org.junit.Before;
+import org.junit.Test;
+import org.ros.exception.RemoteException;
+import org.ros.internal.node.response.StatusCode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BatchStopTest {
+  /** Callback that keeps what it is told. */
+  static class Recorder implements BatchStop.Callback {
+    final List<Integer> progress = new ArrayList<Integer>();
+    List<String> errors;
+    int finished;
+
+    @Override
+    public void onProgress(int completed, int total) {
+      progress.add(completed);
+    }
+
+    @Override
+    public void onFinished(List<String> errors, long elapsedMillis) {
+      this.errors = errors;
+      finished++;
+    }
+  }
+
+  private InFlightRequests requests;
+  private FakeAppManagerClient client;
+  private Recorder recorder;
+
+  @Before
+  public void setUp() {
+    requests = new InFlightRequests();
+    client = new FakeAppManagerClient();
+    recorder = new Recorder();
+  }
+
+  @Test
+  public void everyRunningAppIsStoppedWithOneRequest() {
+    BatchStop batch = new BatchStop(apps(app("teleop"), app("map")), true, recorder);
+    batch.start(client, requests);
+
+    assertEquals(1, batch.getRequestCount());
+    assertEquals(1, client.stopApp.size());
+    assertEquals(AppManagerClient.ALL_APPS, client.stopApp.get(0).name);
+  }
+
+  @Test
+  public void partOfTheRunningAppsAreStoppedOneByOne() {
+    BatchStop batch = new BatchStop(apps(app("teleop"), app("map")), false, recorder);
+    batch.start(client, requests);
+
+    assertEquals(2, client.stopApp.size());
+    assertEquals("teleop", client.stopApp.get(0).name);
+    assertEquals("map", client.stopApp.get(1).name);
+
+    client.stopApp.get(1).listener.onSuccess(stopResponse(true, StatusCodes.SUCCESS, ""));
+    assertEquals(0, recorder.finished);
+    client.stopApp.get(0).listener.onSuccess(stopResponse(false, StatusCodes.NOT_RUNNING, "not running"));
+    assertEquals(1, recorder.finished);
+    assertTrue(recorder.errors.isEmpty());
+    assertEquals(2, recorder.progress.size());
+  }
+
+  @Test
+  public void errorsAreReportedPerApp() {
+    BatchStop batch = new BatchStop(apps(app("teleop"), app("map")), false, recorder);
+    batch.start(client, requests);
+
+    client.stopApp.get(0).listener.onSuccess(stopResponse(false, StatusCodes.SUCCESS, "refused"));
+    client.stopApp.get(1).listener.onFailure(new RemoteException(StatusCode.ERROR, "down"));
+    assertEquals(1, recorder.finished);
+    assertEquals(2, recorder.errors.size());
+    assertTrue(recorder.errors.get(0).startsWith("teleop: refused"));
+    assertTrue(recorder.errors.get(1).startsWith("map: cannot contact robot"));
+  }
+
+  @Test
+  public void joinsAStopAlreadyPending() {
+    requests.stopApp(client, "teleop", new InFlightRequestsTest.Recorder<StopAppResponse>());
+    new BatchStop(apps(app("teleop")), false, recorder).start(client, requests);
+
+    assertEquals(1, client.stopApp.size());
+    client.stopApp.get(0).listener.onSuccess(stopResponse(true, StatusCodes.SUCCESS, ""));
+    assertEquals(1, recorder.finished);
+  }
+
+  @Test
+  public void emptyBatchFinishesAtOnce() {
+    new BatchStop(apps(), true, recorder).start(client, requests);
+
+    assertEquals(0, client.stopApp.size());
+    assertEquals(1, recorder.finished);
+    assertTrue(recorder.errors.isEmpty());
+  }
+}
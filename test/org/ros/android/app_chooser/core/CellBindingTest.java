@@ -0,0 +1,118 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.ros.android.app_chooser.core.TestMessages.app;
+import static org.ros.android.app_chooser.core.TestMessages.apps;
+import static org.ros.android.app_chooser.core.TestMessages.icon;
+
+import app_manager.App;
+import app_manager.Icon;
+import org.junit.Test;
+
+public class CellBindingTest {
+  private static final Icon TELEOP_ICON = icon("png", 1, 2, 3);
+  private static final Icon MAP_ICON = icon("png", 4, 5, 6);
+
+  @Test
+  public void recycledCellGetsTheIconOfItsNewApp() {
+    AppListSnapshot snapshot = new AppListSnapshot(
+        apps(app(TELEOP_ICON, "teleop"), app(MAP_ICON, "map")), apps());
+    CellBinding shown = CellBinding.of(snapshot, 0);
+    CellBinding recycled = CellBinding.of(snapshot, 1);
+
+    assertFalse(recycled.sameIcon(shown));
+    assertFalse(recycled.equals(shown));
+    assertEquals("map", recycled.getAppName());
+    assertEquals("MAP", recycled.getLabel());
+  }
+
+  @Test
+  public void recycledCellLosesTheHighlightOfARunningApp() {
+    App teleop = app(TELEOP_ICON, "teleop");
+    App map = app(MAP_ICON, "map");
+    AppListSnapshot snapshot = new AppListSnapshot(apps(teleop, map), apps(app("teleop")));
+    CellBinding shown = CellBinding.of(snapshot, 0);
+    CellBinding recycled = CellBinding.of(snapshot, 1);
+
+    assertTrue(shown.isHighlighted());
+    assertFalse(recycled.isHighlighted());
+    assertFalse(recycled.equals(shown));
+  }
+
+  @Test
+  public void sameIconOfDifferentAppsIsStillReloaded() {
+    // Two apps shipping the same bytes still key different cache entries.
+    AppListSnapshot snapshot = new AppListSnapshot(
+        apps(app(TELEOP_ICON, "teleop"), app(icon("png", 1, 2, 3), "map")), apps());
+    assertEquals(snapshot.getIconHash(0), snapshot.getIconHash(1));
+    assertFalse(CellBinding.of(snapshot, 1).sameIcon(CellBinding.of(snapshot, 0)));
+  }
+
+  @Test
+  public void startingAnAppOnlyChangesTheHighlight() {
+    App teleop = app(TELEOP_ICON, "teleop");
+    CellBinding stopped = CellBinding.of(new AppListSnapshot(apps(teleop), apps()), 0);
+    CellBinding started = CellBinding.of(new AppListSnapshot(apps(teleop), apps(app("teleop"))), 0);
+
+    assertTrue(started.sameIcon(stopped));
+    assertFalse(started.equals(stopped));
+    assertTrue(started.isHighlighted());
+  }
+
+  @Test
+  public void newIconBytesForTheSameAppAreReloaded() {
+    CellBinding before = CellBinding.of(new AppListSnapshot(apps(app(TELEOP_ICON, "teleop")), apps()), 0);
+    CellBinding after = CellBinding.of(new AppListSnapshot(apps(app(icon("png", 9), "teleop")), apps()), 0);
+    assertFalse(after.sameIcon(before));
+  }
+
+  @Test
+  public void unchangedAppNeedsNoRebind() {
+    CellBinding before = CellBinding.of(new AppListSnapshot(apps(app(TELEOP_ICON, "teleop")), apps()), 0);
+    CellBinding after = CellBinding.of(new AppListSnapshot(apps(app(icon("png", 1, 2, 3), "teleop")), apps()), 0);
+    assertEquals(before, after);
+    assertEquals(before.hashCode(), after.hashCode());
+  }
+
+  @Test
+  public void freshCellIsAlwaysBound() {
+    CellBinding binding = CellBinding.of(new AppListSnapshot(apps(app("teleop")), apps()), 0);
+    assertFalse(binding.sameIcon(null));
+    assertFalse(binding.equals(null));
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.ros.android.app_chooser.core.TestMessages.exchangeApp;
+import static org.ros.android.app_chooser.core.TestMessages.exchangeApps;
+
+import org.junit.Test;
+
+public class ExchangeSelectionTest {
+  private final ExchangeSnapshot snapshot = new ExchangeSnapshot(
+      exchangeApps(exchangeApp("map", "2.0", "2.0", false), exchangeApp("pick", "1.0", "1.0", false)),
+      exchangeApps(exchangeApp("teleop", "1.0", "1.0", false), exchangeApp("map", "1.0", "2.0", false)));
+
+  @Test
+  public void installed() {
+    ExchangeSelection selection = new ExchangeSelection(snapshot, "teleop");
+
+    assertEquals(ExchangeSelection.State.INSTALLED, selection.state);
+    assertFalse(selection.canInstall());
+    assertTrue(selection.canUninstall());
+    assertEquals("TELEOP (Installed)", selection.label());
+  }
+
+  @Test
+  public void upgradable() {
+    ExchangeSelection selection = new ExchangeSelection(snapshot, "map");
+
+    assertEquals(ExchangeSelection.State.UPGRADABLE, selection.state);
+    assertTrue(selection.canInstall());
+    assertTrue(selection.canUninstall());
+    assertEquals("MAP (Installed, Upgrade Available)", selection.label());
+  }
+
+  @Test
+  public void available() {
+    ExchangeSelection selection = new ExchangeSelection(snapshot, "pick");
+
+    assertEquals(ExchangeSelection.State.AVAILABLE, selection.state);
+    assertTrue(selection.canInstall());
+    assertFalse(selection.canUninstall());
+    assertEquals("PICK (Not Installed)", selection.label());
+  }
+
+  @Test
+  public void goneFromBothLists() {
+    ExchangeSelection selection = new ExchangeSelection(snapshot, "removed");
+
+    assertEquals(ExchangeSelection.State.UNKNOWN, selection.state);
+    assertFalse(selection.canInstall());
+    assertFalse(selection.canUninstall());
+    assertNull(selection.displayName);
+  }
+}
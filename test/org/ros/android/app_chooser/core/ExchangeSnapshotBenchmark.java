@@ -0,0 +1,112 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser.core;
+
+import static org.ros.android.app_chooser.core.TestMessages.exchangeApp;
+
+import app_manager.ExchangeApp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cost of one exchange update as the catalog grows: building the
+ * ExchangeSnapshot, and looking up the installed state of every listed
+ * app through it, against the list scans ExchangeActivity.update did
+ * before.  A quarter of the apps are installed, an eighth of those are
+ * upgradable and every twentieth app is hidden.
+ */
+public class ExchangeSnapshotBenchmark {
+  static List<ExchangeApp> availableApps(int size) {
+    List<ExchangeApp> apps = new ArrayList<ExchangeApp>(size);
+    for (int i = 0; i < size; i++) {
+      apps.add(exchangeApp("app" + i, "1.0", "1.0", i % 20 == 0));
+    }
+    return apps;
+  }
+
+  static List<ExchangeApp> installedApps(int size) {
+    List<ExchangeApp> apps = new ArrayList<ExchangeApp>(size / 4);
+    for (int i = 0; i < size; i += 4) {
+      apps.add(exchangeApp("app" + i, "1.0", i % 32 == 0 ? "1.1" : "1.0", i % 20 == 0));
+    }
+    return apps;
+  }
+
+  /** The scan update did for the selected app, comparing names with equals, kept as the baseline. */
+  static ExchangeApp scan(List<ExchangeApp> list, String name) {
+    for (ExchangeApp a : list) {
+      if (a.getName().equals(name)) {
+        return a;
+      }
+    }
+    return null;
+  }
+
+  public static void main(String[] args) {
+    for (int size : AppListFilterBenchmark.SIZES) {
+      final List<ExchangeApp> available = availableApps(size);
+      final List<ExchangeApp> installed = installedApps(size);
+      final ExchangeSnapshot snapshot = new ExchangeSnapshot(available, installed);
+      MicroBenchmark.report("ExchangeSnapshot build", size, new MicroBenchmark.Operation() {
+          @Override
+          public Object run() {
+            return new ExchangeSnapshot(available, installed);
+          }});
+      MicroBenchmark.report("ExchangeSnapshot, every app", size, new MicroBenchmark.Operation() {
+          @Override
+          public Object run() {
+            int count = 0;
+            for (String name : snapshot.getAvailableNames()) {
+              if (snapshot.isInstalled(name) && snapshot.isUpgradable(name)) {
+                count++;
+              }
+            }
+            return count;
+          }});
+      MicroBenchmark.report("list scans, every app (before)", size, new MicroBenchmark.Operation() {
+          @Override
+          public Object run() {
+            int count = 0;
+            for (ExchangeApp a : available) {
+              ExchangeApp entry = scan(installed, a.getName());
+              if (entry != null && !entry.getVersion().equals(entry.getLatestVersion())) {
+                count++;
+              }
+            }
+            return count;
+          }});
+    }
+  }
+}
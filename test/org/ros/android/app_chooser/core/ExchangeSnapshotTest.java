@@ -0,0 +1,123 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.ros.android.app_chooser.core.TestMessages.exchangeApp;
+import static org.ros.android.app_chooser.core.TestMessages.exchangeApps;
+
+import app_manager.ExchangeApp;
+import org.junit.Test;
+
+public class ExchangeSnapshotTest {
+  private final ExchangeApp installedTeleop = exchangeApp("teleop", "1.0", "1.0", false);
+  private final ExchangeApp installedMap = exchangeApp("map", "1.0", "2.0", false);
+  private final ExchangeApp installedHidden = exchangeApp("driver", "1.0", "1.0", true);
+  private final ExchangeApp availableMap = exchangeApp("map", "2.0", "2.0", false);
+  private final ExchangeApp availablePick = exchangeApp("pick", "1.0", "1.0", false);
+  private final ExchangeApp availableHidden = exchangeApp("calibrate", "1.0", "1.0", true);
+
+  private ExchangeSnapshot snapshot() {
+    return new ExchangeSnapshot(exchangeApps(availableMap, availablePick, availableHidden),
+                                exchangeApps(installedTeleop, installedMap, installedHidden));
+  }
+
+  @Test
+  public void indexesInstalledAndAvailableByName() {
+    ExchangeSnapshot snapshot = snapshot();
+
+    assertTrue(snapshot.isInstalled("teleop"));
+    assertFalse(snapshot.isAvailable("teleop"));
+    assertTrue(snapshot.isInstalled("map"));
+    assertTrue(snapshot.isAvailable("map"));
+    assertFalse(snapshot.isInstalled("pick"));
+    assertTrue(snapshot.isAvailable("pick"));
+    assertFalse(snapshot.isInstalled("nothing"));
+    assertFalse(snapshot.isAvailable("nothing"));
+  }
+
+  @Test
+  public void hiddenAppsAreIndexedButNotListed() {
+    ExchangeSnapshot snapshot = snapshot();
+
+    assertTrue(snapshot.isInstalled("driver"));
+    assertTrue(snapshot.isAvailable("calibrate"));
+    assertArrayEquals(new String[] { "teleop", "map" }, snapshot.getInstalledNames());
+    assertArrayEquals(new String[] { "map", "pick" }, snapshot.getAvailableNames());
+  }
+
+  @Test
+  public void upgradableWhenInstalledVersionIsNotLatest() {
+    ExchangeSnapshot snapshot = snapshot();
+
+    assertTrue(snapshot.isUpgradable("map"));
+    assertFalse(snapshot.isUpgradable("teleop"));
+    assertFalse(snapshot.isUpgradable("pick"));
+    assertArrayEquals(new String[] { "TELEOP", "MAP (Upgradable)" }, snapshot.getInstalledDisplay());
+    assertArrayEquals(new String[] { "MAP", "PICK" }, snapshot.getAvailableDisplay());
+  }
+
+  @Test
+  public void getPrefersTheInstalledEntry() {
+    ExchangeSnapshot snapshot = snapshot();
+
+    assertSame(installedMap, snapshot.get("map"));
+    assertSame(availablePick, snapshot.get("pick"));
+    assertNull(snapshot.get("nothing"));
+  }
+
+  @Test
+  public void nullNamesAreNotListed() {
+    ExchangeSnapshot snapshot = snapshot();
+
+    assertFalse(snapshot.isInstalled(null));
+    assertFalse(snapshot.isAvailable(null));
+    assertFalse(snapshot.isUpgradable(null));
+    assertNull(snapshot.get(null));
+  }
+
+  @Test
+  public void empty() {
+    ExchangeSnapshot snapshot = ExchangeSnapshot.empty();
+
+    assertTrue(snapshot.getInstalledApps().isEmpty());
+    assertTrue(snapshot.getAvailableApps().isEmpty());
+    assertArrayEquals(new String[0], snapshot.getInstalledNames());
+    assertArrayEquals(new String[0], snapshot.getAvailableNames());
+  }
+}
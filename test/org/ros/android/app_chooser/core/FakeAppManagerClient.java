@@ -0,0 +1,121 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser.core;
+
+import app_manager.GetAppDetailsResponse;
+import app_manager.GetInstallationStateResponse;
+import app_manager.InstallAppResponse;
+import app_manager.ListAppsResponse;
+import app_manager.StartAppResponse;
+import app_manager.StopAppResponse;
+import app_manager.UninstallAppResponse;
+import org.ros.node.service.ServiceResponseListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * AppManagerClient that sends nothing.  It records each call with its
+ * listener, so a test can answer the calls in any order it likes.
+ */
+public class FakeAppManagerClient implements AppManagerClient {
+  /** One call made through the client. */
+  public static class Call<T> {
+    public final String operation;
+    public final String name;
+    public final ServiceResponseListener<T> listener;
+
+    Call(String operation, String name, ServiceResponseListener<T> listener) {
+      this.operation = operation;
+      this.name = name;
+      this.listener = listener;
+    }
+  }
+
+  public final List<Call<ListAppsResponse>> listApps = new ArrayList<Call<ListAppsResponse>>();
+  public final List<Call<StartAppResponse>> startApp = new ArrayList<Call<StartAppResponse>>();
+  public final List<Call<StopAppResponse>> stopApp = new ArrayList<Call<StopAppResponse>>();
+
+  private static final PendingCall NOT_CANCELLABLE = new PendingCall() {
+      @Override
+      public void cancel() {
+      }};
+
+  @Override
+  public PendingCall listApps(ServiceResponseListener<ListAppsResponse> listener) {
+    listApps.add(new Call<ListAppsResponse>(InFlightRequests.LIST_APPS, null, listener));
+    return NOT_CANCELLABLE;
+  }
+
+  @Override
+  public PendingCall startApp(String name, ServiceResponseListener<StartAppResponse> listener) {
+    startApp.add(new Call<StartAppResponse>(InFlightRequests.START_APP, name, listener));
+    return NOT_CANCELLABLE;
+  }
+
+  @Override
+  public PendingCall stopApp(String name, ServiceResponseListener<StopAppResponse> listener) {
+    stopApp.add(new Call<StopAppResponse>(InFlightRequests.STOP_APP, name, listener));
+    return NOT_CANCELLABLE;
+  }
+
+  @Override
+  public PendingCall listExchangeApps(boolean remoteUpdate, ServiceResponseListener<GetInstallationStateResponse> listener) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public PendingCall getAppDetails(String name, ServiceResponseListener<GetAppDetailsResponse> listener) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public PendingCall installApp(String name, ServiceResponseListener<InstallAppResponse> listener) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public PendingCall uninstallApp(String name, ServiceResponseListener<UninstallAppResponse> listener) {
+    throw new UnsupportedOperationException();
+  }
+
+  /** A stop response with the given outcome. */
+  public static StopAppResponse stopResponse(boolean stopped, int errorCode, String message) {
+    StopAppResponse response = TestMessages.newMessage(StopAppResponse.class);
+    response.setStopped(stopped);
+    response.setErrorCode(errorCode);
+    response.setMessage(message);
+    return response;
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import app_manager.ListAppsResponse;
+import app_manager.StartAppResponse;
+import app_manager.StatusCodes;
+import app_manager.StopAppResponse;
+import org.junit.Before;
+import org.junit.Test;
+import org.ros.exception.RemoteException;
+import org.ros.internal.node.response.StatusCode;
+import org.ros.node.service.ServiceResponseListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class InFlightRequestsTest {
+  /** Listener that keeps what it is told. */
+  static class Recorder<T> implements ServiceResponseListener<T> {
+    final List<T> successes = new ArrayList<T>();
+    final List<RemoteException> failures = new ArrayList<RemoteException>();
+
+    @Override
+    public void onSuccess(T message) {
+      successes.add(message);
+    }
+
+    @Override
+    public void onFailure(RemoteException e) {
+      failures.add(e);
+    }
+  }
+
+  private InFlightRequests requests;
+  private FakeAppManagerClient client;
+
+  @Before
+  public void setUp() {
+    requests = new InFlightRequests();
+    client = new FakeAppManagerClient();
+  }
+
+  @Test
+  public void identicalRequestsShareOneCall() {
+    Recorder<ListAppsResponse> first = new Recorder<ListAppsResponse>();
+    Recorder<ListAppsResponse> second = new Recorder<ListAppsResponse>();
+    requests.listApps(client, first);
+    requests.listApps(client, second);
+
+    assertEquals(1, client.listApps.size());
+    assertEquals(1, requests.getSent());
+    assertEquals(1, requests.getRoundTripsSaved());
+
+    ListAppsResponse response = TestMessages.newMessage(ListAppsResponse.class);
+    client.listApps.get(0).listener.onSuccess(response);
+    assertSame(response, first.successes.get(0));
+    assertSame(response, second.successes.get(0));
+  }
+
+  @Test
+  public void failureReachesEveryCaller() {
+    Recorder<StartAppResponse> first = new Recorder<StartAppResponse>();
+    Recorder<StartAppResponse> second = new Recorder<StartAppResponse>();
+    requests.startApp(client, "teleop", first);
+    requests.startApp(client, "teleop", second);
+
+    RemoteException e = new RemoteException(StatusCode.ERROR, "robot went away");
+    client.startApp.get(0).listener.onFailure(e);
+    assertSame(e, first.failures.get(0));
+    assertSame(e, second.failures.get(0));
+    assertTrue(first.successes.isEmpty());
+  }
+
+  @Test
+  public void cancelledRequestReleasesEveryCaller() {
+    Recorder<StopAppResponse> first = new Recorder<StopAppResponse>();
+    Recorder<StopAppResponse> second = new Recorder<StopAppResponse>();
+    requests.stopApp(client, "teleop", first);
+    requests.stopApp(client, "teleop", second);
+
+    client.stopApp.get(0).listener.onFailure(new CallCancelledException("stopApp cancelled"));
+    assertTrue(first.failures.get(0) instanceof CallCancelledException);
+    assertTrue(second.failures.get(0) instanceof CallCancelledException);
+    assertFalse(requests.isPending(client, InFlightRequests.STOP_APP, "teleop"));
+  }
+
+  @Test
+  public void differentAppsAreSentSeparately() {
+    requests.stopApp(client, "teleop", new Recorder<StopAppResponse>());
+    requests.stopApp(client, "map", new Recorder<StopAppResponse>());
+    requests.startApp(client, "teleop", new Recorder<StartAppResponse>());
+
+    assertEquals(2, client.stopApp.size());
+    assertEquals(1, client.startApp.size());
+    assertEquals(0, requests.getRoundTripsSaved());
+  }
+
+  @Test
+  public void differentClientsAreSentSeparately() {
+    FakeAppManagerClient other = new FakeAppManagerClient();
+    Recorder<ListAppsResponse> oldRobot = new Recorder<ListAppsResponse>();
+    Recorder<ListAppsResponse> newRobot = new Recorder<ListAppsResponse>();
+    requests.listApps(client, oldRobot);
+    requests.listApps(other, newRobot);
+
+    assertEquals(1, client.listApps.size());
+    assertEquals(1, other.listApps.size());
+    other.listApps.get(0).listener.onSuccess(TestMessages.newMessage(ListAppsResponse.class));
+    assertEquals(1, newRobot.successes.size());
+    assertTrue(oldRobot.successes.isEmpty());
+    assertTrue(requests.isPending(client, InFlightRequests.LIST_APPS, null));
+    assertFalse(requests.isPending(other, InFlightRequests.LIST_APPS, null));
+  }
+
+  @Test
+  public void completedRequestIsSentAgain() {
+    requests.stopApp(client, "teleop", new Recorder<StopAppResponse>());
+    assertTrue(requests.isPending(client, InFlightRequests.STOP_APP, "teleop"));
+    client.stopApp.get(0).listener.onSuccess(FakeAppManagerClient.stopResponse(true, StatusCodes.SUCCESS, ""));
+    assertFalse(requests.isPending(client, InFlightRequests.STOP_APP, "teleop"));
+
+    requests.stopApp(client, "teleop", new Recorder<StopAppResponse>());
+    assertEquals(2, client.stopApp.size());
+    assertEquals(2, requests.getSent());
+  }
+
+  @Test
+  public void joinReturnsNullForDuplicates() {
+    ServiceResponseListener<StopAppResponse> first =
+      requests.join(client, InFlightRequests.STOP_APP, "teleop", new Recorder<StopAppResponse>());
+    ServiceResponseListener<StopAppResponse> second =
+      requests.join(client, InFlightRequests.STOP_APP, "teleop", new Recorder<StopAppResponse>());
+
+    assertNotNull(first);
+    assertNull(second);
+  }
+}
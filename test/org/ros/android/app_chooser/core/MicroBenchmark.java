@@ -0,0 +1,80 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser.core;
+
+/**
+ * Timing loop for the core benchmarks, which are plain main classes run by
+ * the benchmark-core ant target.  Each operation is warmed up, then timed
+ * in several rounds of enough calls to take about a tenth of a second; the
+ * fastest round is reported, in nanoseconds per call.
+ */
+public class MicroBenchmark {
+  public interface Operation {
+    /** Runs the measured code once; the result is kept so it is not optimized away. */
+    Object run();
+  }
+
+  private static final long ROUND_NANOS = 100 * 1000 * 1000L;
+  private static final int ROUNDS = 5;
+
+  private static volatile Object sink;
+
+  private MicroBenchmark() {
+  }
+
+  public static double nanosPerCall(Operation operation) {
+    int calls = 1;
+    while (time(operation, calls) < ROUND_NANOS) {
+      calls *= 2;
+    }
+    long best = Long.MAX_VALUE;
+    for (int round = 0; round < ROUNDS; round++) {
+      best = Math.min(best, time(operation, calls));
+    }
+    return (double) best / calls;
+  }
+
+  private static long time(Operation operation, int calls) {
+    long start = System.nanoTime();
+    for (int i = 0; i < calls; i++) {
+      sink = operation.run();
+    }
+    return System.nanoTime() - start;
+  }
+
+  /** Times operation and prints one line of the report. */
+  public static void report(String name, int size, Operation operation) {
+    System.out.println(String.format("%-36s %6d %14.1f ns/op", name, size, nanosPerCall(operation)));
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser.core;
+
+import app_manager.App;
+
+import java.util.List;
+
+/**
+ * Running-state checks of every app in a grid, as one render does them,
+ * with a RunningAppIndex and with the linear scan over the running apps it
+ * replaced.  A tenth of the apps are running.
+ */
+public class RunningAppIndexBenchmark {
+  /** The scan AppAdapter.isAppRunning used to do, kept as the baseline. */
+  static boolean scanRunning(List<App> runningApps, App app) {
+    for (App running : runningApps) {
+      if (running.getName().equals(app.getName())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public static void main(String[] args) {
+    for (int size : AppListFilterBenchmark.SIZES) {
+      final List<App> available = AppListFilterBenchmark.syntheticApps(size);
+      final List<App> running = AppListFilterBenchmark.runningApps(available);
+      final RunningAppIndex index = new RunningAppIndex(running);
+      MicroBenchmark.report("RunningAppIndex build", size, new MicroBenchmark.Operation() {
+          @Override
+          public Object run() {
+            return new RunningAppIndex(running);
+          }});
+      MicroBenchmark.report("RunningAppIndex.isRunning, all apps", size, new MicroBenchmark.Operation() {
+          @Override
+          public Object run() {
+            int count = 0;
+            for (int i = 0; i < available.size(); i++) {
+              if (index.isRunning(available.get(i))) {
+                count++;
+              }
+            }
+            return count;
+          }});
+      MicroBenchmark.report("linear scan, all apps (before)", size, new MicroBenchmark.Operation() {
+          @Override
+          public Object run() {
+            int count = 0;
+            for (int i = 0; i < available.size(); i++) {
+              if (scanRunning(running, available.get(i))) {
+                count++;
+              }
+            }
+            return count;
+          }});
+    }
+  }
+}
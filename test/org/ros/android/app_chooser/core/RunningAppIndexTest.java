@@ -0,0 +1,79 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.ros.android.app_chooser.core.TestMessages.app;
+import static org.ros.android.app_chooser.core.TestMessages.apps;
+
+import app_manager.App;
+import org.junit.Test;
+
+public class RunningAppIndexTest {
+  @Test
+  public void matchesByName() {
+    RunningAppIndex index = new RunningAppIndex(apps(app("teleop"), app("map")));
+
+    // A different message with the same name is the same app.
+    assertTrue(index.isRunning(app("teleop")));
+    assertTrue(index.isRunning(app("map")));
+    assertFalse(index.isRunning(app("pick")));
+    assertEquals(2, index.size());
+    assertFalse(index.isEmpty());
+  }
+
+  @Test
+  public void duplicateNamesCountOnce() {
+    RunningAppIndex index = new RunningAppIndex(apps(app("teleop"), app("teleop")));
+    assertEquals(1, index.size());
+  }
+
+  @Test
+  public void appsWithoutNameAreNeverRunning() {
+    App unnamed = TestMessages.newMessage(App.class);
+    RunningAppIndex index = new RunningAppIndex(apps(unnamed));
+
+    assertTrue(index.isEmpty());
+    assertFalse(index.isRunning(unnamed));
+  }
+
+  @Test
+  public void empty() {
+    RunningAppIndex index = new RunningAppIndex(apps());
+    assertTrue(index.isEmpty());
+    assertFalse(index.isRunning(app("teleop")));
+  }
+}
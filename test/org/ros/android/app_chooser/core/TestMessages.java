@@ -0,0 +1,158 @@
+/*
+ * Software License Agreement (BSD License)
+ *
+ * Copyright (c) 2011, Willow Garage, Inc.
+ * All rights reserved.
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  * Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above
+ *    copyright notice, this list of conditions and the following
+ *    disclaimer in the documentation and/or other materials provided
+ *    with the distribution.
+ *  * Neither the name of Willow Garage, Inc. nor the names of its
+ *    contributors may be used to endorse or promote products derived
+ *    from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.ros.android.app_chooser.core;
+
+import app_manager.App;
+import app_manager.ClientApp;
+import app_manager.ExchangeApp;
+import app_manager.Icon;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Message instances for tests, without a node or a message factory: each
+ * is a proxy of the message interface that stores what its setters are
+ * given and hands it back from the getters.
+ */
+public class TestMessages {
+  private TestMessages() {
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <T> T newMessage(Class<T> type) {
+    final Map<String, Object> fields = new HashMap<String, Object>();
+    return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, new InvocationHandler() {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+          String name = method.getName();
+          if (name.startsWith("set") && args != null && args.length == 1) {
+            fields.put(name.substring(3), args[0]);
+            return null;
+          }
+          if (name.startsWith("get") && (args == null || args.length == 0)) {
+            Object value = fields.get(name.substring(3));
+            return value != null ? value : defaultFor(method.getReturnType());
+          }
+          if (name.equals("equals")) {
+            return proxy == args[0];
+          }
+          if (name.equals("hashCode")) {
+            return System.identityHashCode(proxy);
+          }
+          if (name.equals("toString")) {
+            return fields.toString();
+          }
+          throw new UnsupportedOperationException(name);
+        }});
+  }
+
+  private static Object defaultFor(Class<?> type) {
+    if (type == boolean.class) {
+      return false;
+    }
+    if (type == int.class) {
+      return 0;
+    }
+    if (type == byte.class) {
+      return (byte) 0;
+    }
+    if (type == long.class) {
+      return 0L;
+    }
+    if (List.class.isAssignableFrom(type)) {
+      return new ArrayList<Object>();
+    }
+    return null;
+  }
+
+  /** A robot app with a client of each of the given types. */
+  public static App app(String name, String... clientTypes) {
+    App app = newMessage(App.class);
+    app.setName(name);
+    app.setDisplayName(name.toUpperCase());
+    ArrayList<ClientApp> clients = new ArrayList<ClientApp>();
+    for (String clientType : clientTypes) {
+      ClientApp client = newMessage(ClientApp.class);
+      client.setClientType(clientType);
+      clients.add(client);
+    }
+    app.setClientApps(clients);
+    return app;
+  }
+
+  /** An icon of the given format holding the given bytes. */
+  public static Icon icon(String format, int... bytes) {
+    byte[] data = new byte[bytes.length];
+    for (int i = 0; i < bytes.length; i++) {
+      data[i] = (byte) bytes[i];
+    }
+    Icon icon = newMessage(Icon.class);
+    icon.setFormat(format);
+    icon.setData(ChannelBuffers.wrappedBuffer(data));
+    return icon;
+  }
+
+  /** app(name, clientTypes) showing the given icon. */
+  public static App app(Icon icon, String name, String... clientTypes) {
+    App app = app(name, clientTypes);
+    app.setIcon(icon);
+    return app;
+  }
+
+  public static List<App> apps(App... apps) {
+    return new ArrayList<App>(Arrays.asList(apps));
+  }
+
+  public static ExchangeApp exchangeApp(String name, String version, String latestVersion, boolean hidden) {
+    ExchangeApp app = newMessage(ExchangeApp.class);
+    app.setName(name);
+    app.setDisplayName(name.toUpperCase());
+    app.setVersion(version);
+    app.setLatestVersion(latestVersion);
+    app.setHidden(hidden);
+    return app;
+  }
+
+  public static List<ExchangeApp> exchangeApps(ExchangeApp... apps) {
+    return new ArrayList<ExchangeApp>(Arrays.asList(apps));
+  }
+}